@@ -0,0 +1,29 @@
+package org.twowls.linda.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Runs benchmarks with the GC profiler enabled so that allocation rate is reported along with
+ * throughput and average time per rewrite, a rewrite performing all derivations up to the benchmarked
+ * one. Accepts the usual JMH command line options, e.g. a regular expression selecting benchmarks to run.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+public final class Benchmarks {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /* Prevents instantiation */
+    private Benchmarks() {}
+}
@@ -0,0 +1,70 @@
+package org.twowls.linda.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.twowls.linda.engine.IntLSystem;
+import org.twowls.linda.engine.Interpreters;
+import org.twowls.linda.engine.LSystem;
+import org.twowls.linda.engine.LSystemBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Context-free rewriting of the algae and Fibonacci systems, in every rewrite mode.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassicBenchmark {
+
+    @Param({"ITERATIVE", "STREAMING", "PARALLEL"})
+    public LSystem.Mode mode;
+
+    @Param("25")
+    public int derivation;
+
+    private IntLSystem algae;
+    private IntLSystem fibonacci;
+
+    @Setup
+    public void setUp() {
+        algae = LSystemBuilders.intSymbols()
+                .rule('a').out('a', 'b')
+                .rule('b').out('a')
+                .axiom().out('a')
+                .mode(mode)
+                .build();
+
+        fibonacci = LSystemBuilders.intSymbols()
+                .rule(0).out(1)
+                .rule(1).out(0, 1)
+                .axiom().out(0)
+                .mode(mode)
+                .build();
+    }
+
+    @Benchmark
+    public Long algae() {
+        return algae.rewrite(derivation, Interpreters.counting());
+    }
+
+    @Benchmark
+    public Long fibonacci() {
+        return fibonacci.rewrite(derivation, Interpreters.counting());
+    }
+}
@@ -0,0 +1,81 @@
+package org.twowls.linda.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.twowls.linda.engine.IntLSystem;
+import org.twowls.linda.engine.Interpreters;
+import org.twowls.linda.engine.LSystem;
+import org.twowls.linda.engine.LSystemBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Rewriting of context-sensitive and stochastic systems. Streaming mode is left out since it
+ * rewrites context-sensitive systems iteratively. The stochastic system grows faster, so it is
+ * rewritten to its own depth.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContextBenchmark {
+
+    @Param({"ITERATIVE", "PARALLEL"})
+    public LSystem.Mode mode;
+
+    @Param("16")
+    public int derivation;
+
+    @Param("12")
+    public int stochasticDerivation;
+
+    private IntLSystem contextSensitive;
+    private IntLSystem stochastic;
+
+    @Setup
+    public void setUp() {
+        // @formatter:off
+        contextSensitive = LSystemBuilders.intSymbols()
+                .rule('b')
+                    .follows('a').skipping('+').out('a', '+')
+                    .otherwise().out('b', 'b')
+                .rule('a').precedes('b').out('b', 'a')
+                .axiom().out('a', 'b', 'b')
+                .mode(mode)
+                .build();
+
+        stochastic = LSystemBuilders.intSymbols()
+                .rule('F')
+                    .probably(0.33).out('F', '[', '+', 'F', ']', 'F')
+                    .probably(0.33).out('F', '[', '-', 'F', ']', 'F')
+                    .otherwise().out('F', 'F')
+                .axiom().out('F')
+                .mode(mode)
+                .build();
+        // @formatter:on
+    }
+
+    @Benchmark
+    public Long contextSensitive() {
+        return contextSensitive.rewrite(derivation, Interpreters.counting());
+    }
+
+    @Benchmark
+    public Long stochastic() {
+        return stochastic.rewrite(stochasticDerivation, Interpreters.counting());
+    }
+}
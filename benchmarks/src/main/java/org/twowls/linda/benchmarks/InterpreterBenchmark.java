@@ -0,0 +1,82 @@
+package org.twowls.linda.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.twowls.linda.engine.IntLSystem;
+import org.twowls.linda.engine.Interpreter;
+import org.twowls.linda.engine.Interpreters;
+import org.twowls.linda.engine.LSystemBuilders;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Standard interpreters fed by the algae system. Printing goes to a discarding stream.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterpreterBenchmark {
+
+    @Param("20")
+    public int derivation;
+
+    private IntLSystem algae;
+    private Interpreter<Integer, Long> counting;
+    private Interpreter<Integer, String> joining;
+    private Interpreter<Integer, Void> printing;
+
+    @Setup
+    public void setUp() {
+        algae = LSystemBuilders.intSymbols()
+                .rule('a').out('a', 'b')
+                .rule('b').out('a')
+                .axiom().out('a')
+                .build();
+
+        counting = Interpreters.counting();
+        joining = Interpreters.joining();
+        printing = Interpreters.printing(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                // discards output
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                // discards output
+            }
+        }));
+    }
+
+    @Benchmark
+    public Long counting() {
+        return algae.rewrite(derivation, counting);
+    }
+
+    @Benchmark
+    public String joining() {
+        return algae.rewrite(derivation, joining);
+    }
+
+    @Benchmark
+    public Void printing() {
+        return algae.rewrite(derivation, printing);
+    }
+}
@@ -0,0 +1,94 @@
+package org.twowls.linda.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.twowls.linda.engine.IntLSystem;
+import org.twowls.linda.engine.Interpreters;
+import org.twowls.linda.engine.LSystem;
+import org.twowls.linda.engine.LSystemBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Rewriting of parametrized systems, both with string and {@code int} symbols.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParametricBenchmark {
+
+    @Param("1000")
+    public int derivation;
+
+    @Param("16")
+    public int depth;
+
+    private LSystem<String> strings;
+    private IntLSystem ints;
+
+    @Setup
+    public void setUp() {
+        // @formatter:off
+        strings = LSystemBuilders.stringSymbols()
+                .rule("A").def("x", "y")
+                    .when(s -> s.var("y").intVal() <= 3)
+                        .out("A")
+                            .fun(s -> s.wrap(s.var("x").intVal() * 2))
+                            .fun(s -> s.wrap(s.var("x").intVal() + s.var("y").intVal()))
+                    .otherwise()
+                        .out("B")
+                            .var("x")
+                        .out("A")
+                            .fun(s -> s.wrap(s.var("x").intVal() / s.var("y").intVal()))
+                            .val(0)
+                .rule("B").def("x")
+                    .when(s -> s.var("x").intVal() >= 1)
+                        .out("B")
+                            .fun(s -> s.wrap(s.var("x").intVal() - 1))
+                    .otherwise()
+                        .out("C")
+                .axiom()
+                    .out("B").val(2)
+                    .out("A").val(4).val(4)
+                .build();
+
+        ints = LSystemBuilders.intSymbols()
+                .rule('A').def("n")
+                    .when(s -> s.var("n").intVal() > 0)
+                        .out('A').fun(s -> s.wrap(s.var("n").intVal() - 1))
+                        .out('B').fun(s -> s.wrap(s.seq()))
+                        .out('A').fun(s -> s.wrap(s.var("n").intVal() - 1))
+                    .otherwise()
+                        .out('C')
+                .axiom().out('A').val(depth)
+                .mode(LSystem.Mode.STREAMING)
+                .build();
+        // @formatter:on
+    }
+
+    /* The word grows linearly, so a long derivation is rewritten */
+    @Benchmark
+    public Long stringSymbols() {
+        return strings.rewrite(derivation, Interpreters.counting());
+    }
+
+    @Benchmark
+    public Long intSymbols() {
+        return ints.rewrite(depth + 1, Interpreters.counting());
+    }
+}
@@ -5,5 +5,9 @@
  * @since 1.0.0
  */
 module org.twowls.linda.engine {
+    requires java.management;
+    requires static jdk.management;
+    requires static jdk.jfr;
+
     exports org.twowls.linda.engine;
 }
\ No newline at end of file
@@ -0,0 +1,439 @@
+package org.twowls.linda.engine;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * <p>Base implementation of {@link LSystem.Builder} that collects the axiom and rules into
+ * an intermediate model which is later turned into an L-System by concrete builders.</p>
+ *
+ * @param <S> the type of a single symbol
+ * @param <B> the type of concrete builder
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+abstract class AbstractBuilder<S, B extends LSystem.Builder<S>> implements LSystem.Builder<S> {
+
+    private static final long DEFAULT_SEED = 0x4C696E6461L;
+
+    private final Map<S, Rule<S>> rules = new LinkedHashMap<>();
+    private List<Rule.Successor<S>> axiom;
+    private List<Rule.Successor<S>> target;
+    private Rule<S> rule;
+    private Rule.Branch<S> branch;
+    private Rule.Successor<S> successor;
+    private Rule.Context<S> context;
+    private int contexts;
+    private double chance;
+    private boolean negate;
+    private Boolean conjunction;
+    private LSystem.Mode mode = LSystem.Mode.ITERATIVE;
+    private int cacheGenerations;
+    private long cacheBytes;
+    private LSystem.Listener<S> listener;
+    private long seed = DEFAULT_SEED;
+    private Storage storage = Storage.HEAP;
+    private S open;
+    private S close;
+    private GrammarAnalysis<S> analysis;
+
+    /**
+     * @return this builder instance cast to concrete builder type.
+     */
+    protected abstract B self();
+
+    @Override
+    public B axiom() {
+        checkComplete();
+        if (axiom != null) throw new IllegalStateException("Axiom is already defined");
+        axiom = new ArrayList<>();
+        target = axiom;
+        rule = null;
+        reset();
+        return self();
+    }
+
+    @Override
+    public B rule(S symbol) {
+        requireNonNull(symbol);
+        checkComplete();
+        if (rules.containsKey(symbol)) throw new IllegalStateException("Rule is already defined: " + symbol);
+        rule = new Rule<>(symbol);
+        rules.put(symbol, rule);
+        target = null;
+        chance = 0.0;
+        reset();
+        return self();
+    }
+
+    @Override
+    public B def(String... names) {
+        if (rule == null || !rule.branches.isEmpty())
+            throw new IllegalStateException("Variables must be defined right after the rule");
+        for (String name : names) requireNonNull(name);
+        rule.names = names.clone();
+        return self();
+    }
+
+    @Override
+    public B fun(Function<LSystem.State<S>, LSystem.State.Var> fn) {
+        requireNonNull(fn);
+        return param(fn);
+    }
+
+    @Override
+    public B var(String name) {
+        requireNonNull(name);
+        if (rule == null) throw new IllegalStateException("Variables are only allowed within a rule");
+        int slot = Arrays.asList(rule.names).indexOf(name);
+        if (slot < 0) throw new IllegalStateException("Unknown variable: " + name);
+        return param(s -> s.var(slot));
+    }
+
+    @Override
+    public B val(boolean value) {
+        Value v = Value.of(value);
+        return param(s -> v);
+    }
+
+    @Override
+    public B val(double value) {
+        Value v = Value.of(value);
+        return param(s -> v);
+    }
+
+    @Override
+    public B val(int value) {
+        Value v = Value.of(value);
+        return param(s -> v);
+    }
+
+    @Override
+    public B probably(double probability) {
+        if (!(probability > 0.0 && probability < 1.0))
+            throw new IllegalArgumentException("Probability must be in range 0..1 exclusive");
+        if (rule == null) throw new IllegalStateException("Probability is only allowed within a rule");
+        double from = chance;
+        chance += probability;
+        if (chance > 1.0 + 1e-9)
+            throw new IllegalStateException("Total probability of rule branches exceeds 1: " + rule.symbol);
+        return condition(Condition.chance(from, chance), "probably " + probability);
+    }
+
+    @Override
+    public B when(Function<LSystem.State<S>, Boolean> fn) {
+        return condition(Condition.when(fn), "when");
+    }
+
+    @Override
+    public B precedes(S symbol) {
+        return context(true, symbol);
+    }
+
+    @Override
+    public B follows(S symbol) {
+        return context(false, symbol);
+    }
+
+    @Override
+    public B skipping(S symbol) {
+        requireNonNull(symbol);
+        openBranch().skip.add(symbol);
+        return self();
+    }
+
+    @Override
+    public B not() {
+        if (rule == null) throw new IllegalStateException("Conditions are only allowed within a rule");
+        negate = !negate;
+        return self();
+    }
+
+    @Override
+    public B and() {
+        return combine(Boolean.TRUE);
+    }
+
+    @Override
+    public B or() {
+        return combine(Boolean.FALSE);
+    }
+
+    @Override
+    public B otherwise() {
+        if (rule == null) throw new IllegalStateException("Branches are only allowed within a rule");
+        checkComplete();
+        branch = new Rule.Branch<>(rule.branches.size());
+        branch.fallback = true;
+        branch.label = "otherwise";
+        rule.branches.add(branch);
+        target = branch.successors;
+        successor = null;
+        context = null;
+        return self();
+    }
+
+    @Override
+    public B out(S symbol) {
+        requireNonNull(symbol);
+        checkComplete();
+        if (target == null) {
+            if (rule == null) throw new IllegalStateException("Output is only allowed within axiom or rule");
+            target = openBranch().successors;
+        }
+        successor = new Rule.Successor<>(symbol);
+        target.add(successor);
+        context = null;
+        return self();
+    }
+
+    @Override
+    public B mode(LSystem.Mode mode) {
+        this.mode = requireNonNull(mode);
+        return self();
+    }
+
+    @Override
+    public B cache(int generations, long bytes) {
+        if (generations < 0 || bytes < 0) throw new IllegalArgumentException("Cache limits must not be negative");
+        this.cacheGenerations = generations;
+        this.cacheBytes = bytes;
+        return self();
+    }
+
+    @Override
+    public B brackets(S open, S close) {
+        requireNonNull(open);
+        requireNonNull(close);
+        if (open.equals(close)) throw new IllegalArgumentException("Brackets must be distinct");
+        this.open = open;
+        this.close = close;
+        return self();
+    }
+
+    @Override
+    public B offHeap(long threshold, Path directory) {
+        if (threshold < 0) throw new IllegalArgumentException("Threshold must not be negative");
+        this.storage = (directory != null ? new Storage(threshold, directory) : Storage.HEAP);
+        return self();
+    }
+
+    @Override
+    public B seed(long seed) {
+        this.seed = seed;
+        return self();
+    }
+
+    @Override
+    public B listener(LSystem.Listener<S> listener) {
+        this.listener = listener;
+        return self();
+    }
+
+    /**
+     * Replaces the last output symbol with a sequence of symbols.
+     * @param fn a function producing replacement symbols out of the last output symbol.
+     * @return the current {@code Builder} instance.
+     */
+    protected B replaceLast(Function<S, ? extends Collection<S>> fn) {
+        if (successor == null || !successor.params.isEmpty())
+            throw new IllegalStateException("No output symbol to replace");
+        target.remove(target.size() - 1);
+        Rule.Successor<S> last = null;
+        for (S symbol : fn.apply(successor.symbol)) {
+            last = new Rule.Successor<>(symbol);
+            target.add(last);
+        }
+        successor = last;
+        return self();
+    }
+
+    /**
+     * Validates collected data before building an L-System.
+     */
+    protected void validate() {
+        checkComplete();
+        if (axiom == null) throw new IllegalStateException("Axiom is not defined");
+        analysis = new GrammarAnalysis<>(rules.values(), axiom);
+    }
+
+    @Override
+    public LSystem.Analysis<S> analyze() {
+        validate();
+        return analysis;
+    }
+
+    /**
+     * @return the axiom symbols.
+     */
+    protected List<Rule.Successor<S>> axiomSymbols() {
+        return axiom;
+    }
+
+    /**
+     * @return the selected rewrite mode.
+     */
+    protected LSystem.Mode rewriteMode() {
+        return mode;
+    }
+
+    /**
+     * Creates a cache of derived generations according to limits given by {@link #cache(int, long)}.
+     * @param weigher a function estimating size of a generation in bytes.
+     * @return the generation cache.
+     */
+    protected <W> GenerationCache<W> generationCache(ToLongFunction<W> weigher) {
+        return new GenerationCache<>(cacheGenerations, cacheBytes, weigher);
+    }
+
+    /**
+     * Creates the index of neighbours used by context conditions, see {@link ContextIndex}.
+     * @param alphabet the alphabet of the L-System being built.
+     * @return a function creating an empty index per rewrite, or {@code null} if no rule has context conditions.
+     */
+    protected Supplier<ContextIndex<S>> contextIndex(Alphabet<S> alphabet) {
+        return ContextIndex.of(optimizedRules(), alphabet, open, close);
+    }
+
+    /**
+     * @return the storage of generations selected by {@link #offHeap(long, Path)}.
+     */
+    protected Storage storage() {
+        return storage;
+    }
+
+    /**
+     * @return the seed of random numbers.
+     */
+    protected long seed() {
+        return seed;
+    }
+
+    /**
+     * @return the registered listener or {@code null}.
+     */
+    protected LSystem.Listener<S> listener() {
+        return listener;
+    }
+
+    /**
+     * @return all symbols referred to by the axiom and optimized rules, possibly repeated.
+     */
+    protected List<S> symbols() {
+        List<S> symbols = new ArrayList<>();
+        if (open != null) {
+            symbols.add(open);
+            symbols.add(close);
+        }
+        for (Rule.Successor<S> successor : axiom) symbols.add(successor.symbol);
+        for (Rule<S> r : optimizedRules()) {
+            symbols.add(r.symbol);
+            for (Rule.Branch<S> b : r.branches) {
+                for (Rule.Successor<S> successor : b.successors) symbols.add(successor.symbol);
+                for (Rule.Context<S> c : b.contexts) symbols.addAll(c.symbols);
+                symbols.addAll(b.skip);
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * @return collected rules in order of definition.
+     */
+    protected Collection<Rule<S>> rules() {
+        return rules.values();
+    }
+
+    /**
+     * @return collected rules in order of definition as optimized by the last {@link #validate() validation}.
+     */
+    protected Collection<Rule<S>> optimizedRules() {
+        return analysis.rules();
+    }
+
+    private B param(Function<LSystem.State<S>, LSystem.State.Var> fn) {
+        if (successor == null) throw new IllegalStateException("No output symbol to attach a parameter to");
+        successor.params.add(fn);
+        return self();
+    }
+
+    private B context(boolean right, S symbol) {
+        requireNonNull(symbol);
+        if (context == null || context.right != right || negate || conjunction != null) {
+            Rule.Branch<S> b = openBranch();
+            context = new Rule.Context<>(contexts++, right);
+            b.contextual = true;
+            b.contexts.add(context);
+            add(context, right ? "precedes" : "follows");
+        }
+        context.symbols.add(symbol);
+        branch.label += " " + symbol;
+        return self();
+    }
+
+    private B condition(Condition<S> c, String label) {
+        openBranch();
+        add(c, label);
+        context = null;
+        return self();
+    }
+
+    private B combine(Boolean conjunction) {
+        if (branch == null || branch.condition == null || !branch.successors.isEmpty() || negate)
+            throw new IllegalStateException("No condition to combine with");
+        this.conjunction = conjunction;
+        return self();
+    }
+
+    private void add(Condition<S> c, String label) {
+        if (negate) {
+            c = Condition.not(c);
+            label = "not " + label;
+        }
+        if (branch.condition == null) {
+            branch.condition = c;
+            branch.label = label;
+        } else if (Boolean.FALSE.equals(conjunction)) {
+            branch.condition = Condition.or(branch.condition, c);
+            branch.label += " or " + label;
+        } else {
+            branch.condition = Condition.and(branch.condition, c);
+            branch.label += " and " + label;
+        }
+        negate = false;
+        conjunction = null;
+    }
+
+    private Rule.Branch<S> openBranch() {
+        if (rule == null) throw new IllegalStateException("Conditions are only allowed within a rule");
+        if (branch == null || branch.fallback || !branch.successors.isEmpty()) {
+            branch = new Rule.Branch<>(rule.branches.size());
+            rule.branches.add(branch);
+            target = branch.successors;
+            successor = null;
+            context = null;
+        }
+        return branch;
+    }
+
+    private void checkComplete() {
+        if (negate || conjunction != null) throw new IllegalStateException("Incomplete condition");
+    }
+
+    private void reset() {
+        branch = null;
+        successor = null;
+        context = null;
+    }
+}
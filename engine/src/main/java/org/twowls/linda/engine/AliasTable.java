@@ -0,0 +1,101 @@
+package org.twowls.linda.engine;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Walker's alias table selecting a stochastic branch of a rule in constant time. The range of
+ * a random number is split into columns of equal width, each column is shared by at most two
+ * outcomes: its own one and an alias, so a single lookup and comparison picks the outcome.
+ * Tables are built with Vose's method.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class AliasTable {
+
+    private final double[] threshold;
+    private final int[] outcomes;
+    private final int[] aliases;
+
+    /**
+     * @param weights positive weights of outcomes.
+     * @param outcomes the outcomes.
+     */
+    AliasTable(double[] weights, int[] outcomes) {
+        int n = weights.length;
+        double sum = 0.0;
+        for (double w : weights) sum += w;
+
+        double[] p = new double[n];
+        int[] small = new int[n], large = new int[n];
+        int s = 0, l = 0;
+        for (int i = 0; i < n; i++) {
+            p[i] = weights[i] * n / sum;
+            if (p[i] < 1.0) small[s++] = i;
+            else large[l++] = i;
+        }
+
+        this.threshold = new double[n];
+        this.outcomes = outcomes.clone();
+        this.aliases = new int[n];
+        while (s > 0 && l > 0) {
+            int i = small[--s], j = large[--l];
+            threshold[i] = p[i];
+            aliases[i] = outcomes[j];
+            p[j] += p[i] - 1.0;
+            if (p[j] < 1.0) small[s++] = j;
+            else large[l++] = j;
+        }
+        // leftovers are full columns up to rounding errors
+        while (l > 0) threshold[large[--l]] = 1.0;
+        while (s > 0) threshold[small[--s]] = 1.0;
+    }
+
+    /**
+     * Builds a table for a rule whose branches are all guarded by a single {@link LSystem.Builder#probably}
+     * condition, except possibly the last unconditional one.
+     * @param rule the rule.
+     * @return a table picking the number of a branch, or {@code -1} for no branch, or {@code null} if
+     *  branches of the rule cannot be picked by a table.
+     */
+    static AliasTable of(Rule<?> rule) {
+        List<? extends Rule.Branch<?>> branches = rule.branches;
+        int n = branches.size();
+        if (n == 0) return null;
+        boolean fallback = (branches.get(n - 1).condition == null);
+        int chances = (fallback ? n - 1 : n);
+        if (chances == 0) return null;
+
+        double[] weights = new double[n + 1];
+        int[] outcomes = new int[n + 1];
+        int m = 0;
+        double total = 0.0;
+        for (int i = 0; i < chances; i++) {
+            if (!(branches.get(i).condition instanceof Condition.Chance)) return null;
+            Condition.Chance<?> chance = (Condition.Chance<?>) branches.get(i).condition;
+            double weight = chance.to - chance.from;
+            total += weight;
+            if (weight > 0.0) {
+                weights[m] = weight;
+                outcomes[m++] = i;
+            }
+        }
+        if (total < 1.0) {
+            weights[m] = 1.0 - total;
+            outcomes[m++] = (fallback ? n - 1 : -1);
+        }
+        return new AliasTable(Arrays.copyOf(weights, m), Arrays.copyOf(outcomes, m));
+    }
+
+    /**
+     * Picks an outcome.
+     * @param random a uniformly distributed random number in range {@code 0..1} (exclusive).
+     * @return the outcome.
+     */
+    int sample(double random) {
+        double x = random * threshold.length;
+        int column = Math.min((int) x, threshold.length - 1);
+        return (x - column < threshold[column] ? outcomes[column] : aliases[column]);
+    }
+}
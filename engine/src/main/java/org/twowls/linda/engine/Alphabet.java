@@ -0,0 +1,121 @@
+package org.twowls.linda.engine;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Maps symbols onto {@code int} codes kept by {@link ArrayIntLSystem}. {@code int} symbols are
+ * their own codes, enum constants are coded by ordinals and other symbols are interned into dense
+ * codes when an L-System is built. Codes are only turned back into objects when requested by rule
+ * functions or interpreters.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+abstract class Alphabet<S> {
+
+    /**
+     * The alphabet of {@code int} symbols.
+     */
+    static final Alphabet<Integer> INTEGERS = new Alphabet<>() {
+        @Override
+        int code(Integer symbol) {
+            return symbol;
+        }
+
+        @Override
+        Integer symbol(int code) {
+            return code;
+        }
+    };
+
+    /**
+     * @param symbol the symbol.
+     * @return the code of the symbol or {@code -1} if the symbol is not a part of this alphabet.
+     */
+    abstract int code(S symbol);
+
+    /**
+     * @param code the code of a symbol.
+     * @return the symbol.
+     */
+    abstract S symbol(int code);
+
+    /**
+     * Creates an alphabet assigning codes to distinct symbols in order of appearance.
+     * @param symbols the symbols, may contain duplicates.
+     * @return an alphabet instance.
+     */
+    static <S> Alphabet<S> interning(List<S> symbols) {
+        return new Interned<>(symbols);
+    }
+
+    /**
+     * Creates an alphabet suitable for given symbols: constants of a single enum type are coded
+     * by their ordinals, other symbols are interned.
+     * @param symbols the symbols, may contain duplicates.
+     * @return an alphabet instance.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <S> Alphabet<S> of(List<S> symbols) {
+        Class<?> type = null;
+        for (S symbol : symbols) {
+            Class<?> c = (symbol instanceof Enum ? ((Enum<?>) symbol).getDeclaringClass() : null);
+            if (c == null || (type != null && type != c)) return interning(symbols);
+            type = c;
+        }
+        return (type != null ? new Ordinals(type) : interning(symbols));
+    }
+
+    /**
+     * An alphabet of enum constants.
+     */
+    private static final class Ordinals<E extends Enum<E>> extends Alphabet<E> {
+        private final Class<E> type;
+        private final E[] constants;
+
+        Ordinals(Class<E> type) {
+            this.type = type;
+            this.constants = type.getEnumConstants();
+        }
+
+        @Override
+        int code(E symbol) {
+            return (type.isInstance(symbol) ? symbol.ordinal() : -1);
+        }
+
+        @Override
+        E symbol(int code) {
+            return constants[code];
+        }
+    }
+
+    /**
+     * An alphabet of interned symbols.
+     */
+    private static final class Interned<S> extends Alphabet<S> {
+        private final Map<S, Integer> codes = new HashMap<>();
+        private final Object[] symbols;
+
+        Interned(List<S> symbols) {
+            for (S symbol : symbols) codes.putIfAbsent(symbol, codes.size());
+            this.symbols = new Object[codes.size()];
+            codes.forEach((symbol, code) -> this.symbols[code] = symbol);
+        }
+
+        @Override
+        int code(S symbol) {
+            Integer code = codes.get(symbol);
+            return (code != null ? code : -1);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        S symbol(int code) {
+            return (S) symbols[code];
+        }
+    }
+}
@@ -0,0 +1,863 @@
+package org.twowls.linda.engine;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * <p>{@link LSystem} implementation keeping each generation in a growable {@code int[]}. Symbols are
+ * mapped onto {@code int} codes by an {@link Alphabet}, {@code int} symbols being their own codes.
+ * Two buffers are swapped between derivations, so no symbol is ever boxed while rewriting.
+ * Parameters are packed into primitive value lanes of the same buffers.</p>
+ *
+ * <p>In {@link Mode#STREAMING} mode context-free systems are expanded depth-first instead,
+ * holding just one production per derivation level. In {@link Mode#PARALLEL} mode each generation
+ * is split into chunks: lengths of chunk outputs are computed first, then their prefix sums give
+ * the offsets at which chunks write into the next generation simultaneously.</p>
+ *
+ * <p>Context-free systems of parameterless symbols rewritten in {@link Mode#ITERATIVE} mode keep
+ * generations in a {@link PackedWord} instead whenever they use at most 256 distinct symbols. Symbols
+ * are numbered densely and packed using 8, 4 or 2 bits each depending on the alphabet size chosen
+ * once at build time, which takes 4 to 16 times less memory than {@code int} codes. Successors are
+ * packed in advance, so rewriting merges whole patterns, and only interpreted symbols are unpacked.</p>
+ *
+ * <p>Deterministic systems among them are rewritten several derivations per pass unless a listener
+ * expects metrics of every generation. Each symbol having a rule is expanded in advance to the depths
+ * of {@code 2, 4, 8, ...} derivations while these expansions take at most {@link #MAX_FUSED_SYMBOLS}
+ * symbols per depth, and each pass applies the deepest one not exceeding the remaining derivations.</p>
+ *
+ * <p>Packed generations which may exceed the threshold of the {@link Storage} are written to
+ * a {@link MappedWord} instead, the previous generation being read from its own file. Such
+ * generations are not cached and their files are closed as soon as the next one is derived
+ * or interpretation is finished.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class ArrayIntLSystem<S> implements LSystem<S> {
+
+    private static final int CHUNK_SIZE = 1 << 12;
+    private static final IntWord NO_PARAMS = new IntWord(1);
+    private static final int MAX_FUSED_SYMBOLS = 1 << 16;
+    private static final int MAX_FUSION_LEVEL = 5;
+
+    private final Alphabet<S> alphabet;
+    private final IntDispatch dispatch;
+    private final Production<S>[][] productions;
+    private final Production<S>[] fixed;
+    private final String[][] names;
+    private final IntWord axiom;
+    private final Mode mode;
+    private final GrowthMatrix<S> growth;
+    private final GenerationCache<Word> cache;
+    private final Storage storage;
+    private final List<Rule<S>> rules;
+    private final Listener<S> listener;
+    private final Supplier<ContextIndex<S>> contexts;
+    private final AliasTable[] aliases;
+    private final long seed;
+    /* dense numbers of parameterless context-free symbols mapped to codes and rules, null if numbering is not used */
+    private final int[] codes;
+    private final int[] numberedRules;
+    private final PackedWord packedAxiom;
+    private final DerivationGraph graph;
+    /* productions expanding 2^j derivations at once, the first being fixed ones, null if not fused */
+    private final Production<S>[][] fused;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ArrayIntLSystem(Alphabet<S> alphabet, Collection<Rule<S>> rules, List<Rule.Successor<S>> axiom, Mode mode,
+                    GenerationCache<Word> cache, Storage storage, Listener<S> listener,
+                    Supplier<ContextIndex<S>> contexts, long seed) {
+        List<Rule<S>> list = new ArrayList<>(rules);
+        this.alphabet = alphabet;
+        this.rules = list;
+        this.listener = listener;
+        this.contexts = contexts;
+        this.seed = seed;
+        this.aliases = list.stream().map(AliasTable::of).toArray(AliasTable[]::new);
+        this.dispatch = new IntDispatch(list.stream().mapToInt(r -> alphabet.code(r.symbol)).toArray());
+        this.productions = new Production[list.size()][];
+        this.fixed = new Production[list.size()];
+        this.names = new String[list.size()][];
+        for (int i = 0; i < list.size(); i++) {
+            Rule<S> rule = list.get(i);
+            names[i] = rule.names;
+            productions[i] = rule.branches.stream().map(b -> new Production<>(b, alphabet)).toArray(Production[]::new);
+            if (productions[i].length > 0 && productions[i][0].condition == null) fixed[i] = productions[i][0];
+        }
+
+        IntScope<S> scope = new IntScope<>(seed, alphabet);
+        this.axiom = new IntWord(axiom.size());
+        for (Rule.Successor<S> successor : axiom) {
+            scope.seq = this.axiom.size;
+            this.axiom.add(alphabet.code(successor.symbol));
+            evaluate(Production.functions(successor), scope, this.axiom);
+        }
+
+        this.growth = GrowthMatrix.of(rules, axiom);
+        this.cache = cache;
+        this.storage = storage;
+        this.mode = (mode == Mode.STREAMING && !rules.stream().allMatch(Rule::isContextFree) ? Mode.ITERATIVE : mode);
+
+        if (this.axiom.offsets != null || !rules.stream().allMatch(Rule::isContextFree)
+                || !Arrays.stream(productions).flatMap(Arrays::stream).allMatch(p -> p.params == null)) {
+            this.codes = this.numberedRules = null;
+            this.packedAxiom = null;
+            this.graph = null;
+            this.fused = null;
+            return;
+        }
+
+        // parameterless context-free symbols are numbered densely
+        this.codes = IntStream.concat(IntStream.concat(Arrays.stream(this.axiom.symbols, 0, this.axiom.size),
+                list.stream().mapToInt(r -> alphabet.code(r.symbol))),
+                Arrays.stream(productions).flatMap(Arrays::stream).flatMapToInt(p -> Arrays.stream(p.symbols)))
+                .distinct().toArray();
+        this.numberedRules = Arrays.stream(codes).map(dispatch::lookup).toArray();
+        IntDispatch numbers = new IntDispatch(codes);
+        int[] axiomNumbers = Arrays.stream(this.axiom.symbols, 0, this.axiom.size).map(numbers::lookup).toArray();
+        this.graph = (growth != null
+                ? new DerivationGraph(axiomNumbers, Arrays.stream(numberedRules)
+                    .mapToObj(r -> r >= 0 && fixed[r] != null ? Arrays.stream(fixed[r].symbols).map(numbers::lookup).toArray() : null)
+                    .toArray(int[][]::new))
+                : null);
+        this.fused = (graph != null && listener == null ? fuse(numbers) : null);
+
+        int bits = (this.mode == Mode.ITERATIVE ? PackedWord.bits(codes.length) : 0);
+        if (bits == 0) {
+            this.packedAxiom = null;
+            return;
+        }
+        List<Production<S>[]> all = new ArrayList<>(Arrays.asList(productions));
+        if (fused != null) all.addAll(Arrays.asList(fused).subList(1, fused.length));
+        for (Production<S>[] level : all) {
+            for (Production<S> p : level) {
+                if (p != null) p.packed = PackedWord.patterns(bits, Arrays.stream(p.symbols).map(numbers::lookup).toArray());
+            }
+        }
+        this.packedAxiom = new PackedWord(bits, axiomNumbers.length);
+        for (int number : axiomNumbers) packedAxiom.append(number, 1);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Production<S>[][] fuse(IntDispatch numbers) {
+        List<Production<S>[]> levels = new ArrayList<>();
+        levels.add(fixed);
+        for (int j = 1; j <= MAX_FUSION_LEVEL; j++) {
+            int depth = 1 << j;
+            long total = 0;
+            for (int r = 0; r < fixed.length && total <= MAX_FUSED_SYMBOLS; r++) {
+                if (fixed[r] != null) total += graph.length(numbers.lookup(alphabet.code(rules.get(r).symbol)), depth);
+            }
+            if (total > MAX_FUSED_SYMBOLS) break;
+
+            Production<S>[] level = new Production[fixed.length];
+            for (int r = 0; r < fixed.length; r++) {
+                if (fixed[r] == null) continue;
+                int[] expanded = graph.expand(numbers.lookup(alphabet.code(rules.get(r).symbol)), depth);
+                level[r] = new Production<>(fixed[r].index, Arrays.stream(expanded).map(n -> codes[n]).toArray());
+            }
+            levels.add(level);
+        }
+        return (levels.size() > 1 ? levels.toArray(new Production[0][]) : null);
+    }
+
+    /* Number of fused levels to apply with given number of derivations remaining */
+    private int fusion(int remaining) {
+        return (fused != null ? Math.min(fused.length - 1, 31 - Integer.numberOfLeadingZeros(remaining)) : 0);
+    }
+
+    @Override
+    public <R> R rewrite(int derivations, Interpreter<S, R> interpreter) {
+        if (derivations < 0) throw new IllegalArgumentException("Number of derivations must not be negative");
+        requireNonNull(interpreter);
+        if (mode == Mode.STREAMING) return stream(derivations, interpreter);
+        if (packedAxiom != null) {
+            PackedWord word = derivePacked(derivations);
+            try {
+                return interpret(word, interpreter);
+            } finally {
+                release(word);
+            }
+        }
+        return interpret(derive(derivations), interpreter);
+    }
+
+    @Override
+    public <R> R reduce(int derivations, Reducer<S, R> reducer) {
+        if (derivations < 0) throw new IllegalArgumentException("Number of derivations must not be negative");
+        requireNonNull(reducer);
+        if (graph != null) {
+            IntScope<S> scope = new IntScope<>(seed, alphabet);
+            @SuppressWarnings("unchecked")
+            R[] leaves = (R[]) new Object[codes.length];
+            for (int s = 0; s < codes.length; s++) {
+                int r = numberedRules[s];
+                scope.enter(0, codes[s], r >= 0 ? names[r] : Rule.NO_NAMES);
+                leaves[s] = reducer.accumulate(reducer.identity(), scope);
+            }
+            return graph.reduce(derivations, leaves, reducer.identity(), reducer::combine);
+        }
+        if (mode != Mode.PARALLEL) return rewrite(derivations, new Reduction<>(reducer));
+
+        IntWord word = derive(derivations);
+        int chunks = (word.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        @SuppressWarnings("unchecked")
+        R[] partial = (R[]) new Object[chunks];
+        forEachChunk(chunks, c -> {
+            IntScope<S> scope = new IntScope<>(seed, alphabet);
+            scope.word = word;
+            R result = reducer.identity();
+            for (int i = c * CHUNK_SIZE, to = Math.min(word.size, i + CHUNK_SIZE); i < to; i++) {
+                int symbol = word.symbols[i], r = dispatch.lookup(symbol);
+                scope.enter(i, symbol, r >= 0 ? names[r] : Rule.NO_NAMES, word, i);
+                scope.seq = i;
+                result = reducer.accumulate(result, scope);
+            }
+            partial[c] = result;
+        });
+        R result = reducer.identity();
+        for (R r : partial) result = reducer.combine(result, r);
+        return result;
+    }
+
+    @Override
+    public BigInteger length(int derivations) {
+        return growth(derivations).length(derivations);
+    }
+
+    @Override
+    public Map<S, BigInteger> counts(int derivations) {
+        return growth(derivations).counts(derivations);
+    }
+
+    @Override
+    public S symbolAt(int derivations, long index) {
+        DerivationGraph graph = graph(derivations);
+        checkRange(index, index + 1, graph.length(derivations));
+        return alphabet.symbol(codes[graph.symbolAt(derivations, index)]);
+    }
+
+    @Override
+    public <R> R slice(int derivations, long from, long to, Interpreter<S, R> interpreter) {
+        DerivationGraph graph = graph(derivations);
+        checkRange(from, to, graph.length(derivations));
+        requireNonNull(interpreter);
+        IntScope<S> scope = new IntScope<>(seed, alphabet);
+        interpreter.before(scope);
+        boolean batching = batching(interpreter);
+        int[] chunk = new int[(int) Math.min(CHUNK_SIZE, to - from)];
+        DerivationGraph.Cursor cursor = (from < to ? graph.cursor(derivations, from) : null);
+        for (long position = from; position < to; position += CHUNK_SIZE) {
+            int n = (int) Math.min(CHUNK_SIZE, to - position);
+            for (int i = 0; i < n; i++) chunk[i] = codes[cursor.next()];
+            interpret(chunk, n, position, batching, interpreter, scope);
+        }
+        scope.enter(-1, 0, Rule.NO_NAMES);
+        scope.seq = to;
+        interpreter.after(scope);
+        return interpreter.getResult();
+    }
+
+    @Override
+    public CacheStats cacheStats() {
+        return cache;
+    }
+
+    private GrowthMatrix<S> growth(int derivations) {
+        if (derivations < 0) throw new IllegalArgumentException("Number of derivations must not be negative");
+        if (growth == null) throw new UnsupportedOperationException("L-System is not deterministic and context-free");
+        return growth;
+    }
+
+    private DerivationGraph graph(int derivations) {
+        if (derivations < 0) throw new IllegalArgumentException("Number of derivations must not be negative");
+        if (graph == null) {
+            throw new UnsupportedOperationException("L-System is not deterministic, context-free and parameterless");
+        }
+        return graph;
+    }
+
+    private static void checkRange(long from, long to, long length) {
+        if (from < 0 || from > to || to > length) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") is out of bounds for length " + length);
+        }
+    }
+
+    private IntWord derive(int derivations) {
+        if (derivations == 0) return axiom;
+        IntWord current = axiom;
+        int g = 0;
+        Map.Entry<Integer, Word> cached = cache.floor(derivations);
+        if (cached != null) {
+            g = cached.getKey();
+            current = (IntWord) cached.getValue();
+        }
+        if (g == derivations) return current;
+
+        // the initial generation is shared, so it must not be reused as a buffer
+        IntWord next = new IntWord(current.size);
+        IntScope<S> scope = new IntScope<>(seed, alphabet);
+        Counters<S> counters = (listener != null ? new Counters<>(rules) : null);
+        scope.counters = counters;
+        scope.contexts = (contexts != null ? contexts.get() : null);
+        for (boolean shared = true; g < derivations; shared = false) {
+            int j = fusion(derivations - g);
+            Production<S>[] deterministic = (j > 0 ? fused[j] : fixed);
+            next.clear();
+            if (counters != null) counters.start(g + 1);
+            if (scope.contexts != null) {
+                scope.word = current;
+                scope.contexts.build(scope);
+            }
+            if (mode == Mode.PARALLEL && current.size >= 2 * CHUNK_SIZE) {
+                parallelStep(current, next, g, deterministic, counters, scope.contexts);
+            } else {
+                scope.generation = g;
+                step(current, next, deterministic, scope);
+            }
+            g += 1 << j;
+            if (counters != null) {
+                counters.finish(next.size);
+                listener.derived(counters);
+            }
+            IntWord t = current; current = next; next = (shared ? new IntWord(current.size) : t);
+        }
+        cache.put(derivations, current);
+        return current;
+    }
+
+    private void step(IntWord src, IntWord dst, Production<S>[] deterministic, IntScope<S> scope) {
+        scope.word = src;
+        Counters<S> counters = scope.counters;
+        int[] symbols = src.symbols;
+        for (int i = 0, n = src.size; i < n; i++) {
+            int symbol = symbols[i];
+            int r = dispatch.lookup(symbol);
+            if (r < 0) {
+                // copy the whole run of symbols having no rule
+                int j = i + 1;
+                while (j < n && dispatch.lookup(symbols[j]) < 0) j++;
+                dst.append(src, i, j);
+                i = j - 1;
+                continue;
+            }
+
+            Production<S> p = deterministic[r];
+            if (p == null || p.params != null) {
+                scope.enter(i, symbol, names[r], src, i);
+                scope.seq = dst.size;
+                if (p == null) p = select(r, scope);
+            }
+            if (counters != null) counters.hit(r, p != null ? p.index : -1);
+            if (p == null) {
+                dst.copy(src, i);
+                continue;
+            }
+
+            if (p.params == null) {
+                dst.append(p.symbols);
+                continue;
+            }
+            int[] out = p.symbols;
+            dst.ensureCapacity(dst.size + out.length);
+            for (int k = 0; k < out.length; k++) {
+                scope.seq = dst.size;
+                dst.add(out[k]);
+                evaluate(p.params[k], scope, dst);
+            }
+        }
+    }
+
+    private PackedWord derivePacked(int derivations) {
+        if (derivations == 0) return packedAxiom;
+        PackedWord current = packedAxiom;
+        int g = 0;
+        Map.Entry<Integer, Word> cached = cache.floor(derivations);
+        if (cached != null) {
+            g = cached.getKey();
+            current = (PackedWord) cached.getValue();
+        }
+        if (g == derivations) return current;
+
+        // the initial generation is shared, so it must not be reused as a buffer
+        PackedWord spare = null, next = null;
+        IntScope<S> scope = new IntScope<>(seed, alphabet);
+        Counters<S> counters = (listener != null ? new Counters<>(rules) : null);
+        scope.counters = counters;
+        try {
+            for (boolean shared = true; g < derivations; shared = false) {
+                int j = fusion(derivations - g);
+                if (storage.offHeap(current.bits, bound(current, g, j))) {
+                    next = storage.mapped(current.bits);
+                } else {
+                    next = (spare != null ? spare : new PackedWord(current.bits, current.size));
+                    next.clear();
+                    spare = null;
+                }
+                if (counters != null) counters.start(g + 1);
+                scope.generation = g;
+                packedStep(current, next, j > 0 ? fused[j] : fixed, scope);
+                g += 1 << j;
+                if (counters != null) {
+                    counters.finish(next.size);
+                    listener.derived(counters);
+                }
+                if (!release(current) && !shared) spare = current;
+                current = next;
+                next = null;
+            }
+        } catch (RuntimeException | Error e) {
+            release(current);
+            if (next != null) release(next);
+            throw e;
+        }
+        if (!(current instanceof MappedWord)) cache.put(derivations, current);
+        return current;
+    }
+
+    /* Upper bound of the size of the generation following a packed one */
+    private long bound(PackedWord word, int generation, int level) {
+        if (graph != null) return graph.length(generation + (1 << level));
+        int max = Arrays.stream(productions).flatMap(Arrays::stream).mapToInt(p -> p.symbols.length).max().orElse(1);
+        max = Math.max(1, max);
+        return (word.size > Long.MAX_VALUE / max ? Long.MAX_VALUE : word.size * max);
+    }
+
+    /* Closes a generation kept off-heap, returns false for generations kept on heap */
+    private static boolean release(PackedWord word) {
+        if (!(word instanceof MappedWord)) return false;
+        ((MappedWord) word).close();
+        return true;
+    }
+
+    private void packedStep(PackedWord src, PackedWord dst, Production<S>[] deterministic, IntScope<S> scope) {
+        Counters<S> counters = scope.counters;
+        for (long i = 0, n = src.size; i < n; i++) {
+            int number = src.get(i);
+            int r = numberedRules[number];
+            if (r < 0) {
+                dst.append(number, 1);
+                continue;
+            }
+
+            Production<S> p = deterministic[r];
+            if (p == null) {
+                scope.enter(i, codes[number], names[r]);
+                scope.seq = dst.size;
+                p = select(r, scope);
+            }
+            if (counters != null) counters.hit(r, p != null ? p.index : -1);
+            if (p == null) {
+                dst.append(number, 1);
+            } else {
+                dst.append(p.packed, p.symbols.length);
+            }
+        }
+    }
+
+    private void parallelStep(IntWord src, IntWord dst, int generation, Production<S>[] deterministic,
+                              Counters<S> counters, ContextIndex<S> index) {
+        int chunks = (src.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Production<S>[][] selected = new Production[chunks][];
+        List<Counters<S>> forks = new ArrayList<>(chunks);
+        if (counters != null) {
+            for (int c = 0; c < chunks; c++) forks.add(counters.fork());
+        }
+        long[] offsets = new long[chunks + 1];
+        long[] valueOffsets = new long[chunks + 1];
+
+        // select productions and compute the length of each chunk's output
+        forEachChunk(chunks, c -> {
+            int from = c * CHUNK_SIZE, to = Math.min(src.size, from + CHUNK_SIZE);
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Production<S>[] chunk = new Production[to - from];
+            IntScope<S> scope = new IntScope<>(seed, alphabet);
+            scope.word = src;
+            scope.generation = generation;
+            scope.counters = (counters != null ? forks.get(c) : null);
+            scope.contexts = index;
+            long length = 0, count = 0;
+            for (int i = from; i < to; i++) {
+                int symbol = src.symbols[i];
+                int r = dispatch.lookup(symbol);
+                Production<S> p = (r >= 0 ? deterministic[r] : null);
+                if (r >= 0 && p == null) {
+                    scope.enter(i, symbol, names[r], src, i);
+                    p = select(r, scope);
+                }
+                if (r >= 0 && scope.counters != null) scope.counters.hit(r, p != null ? p.index : -1);
+                chunk[i - from] = p;
+                length += (p != null ? p.symbols.length : 1);
+                count += (p != null ? p.count : src.params(i));
+            }
+            selected[c] = chunk;
+            offsets[c + 1] = length;
+            valueOffsets[c + 1] = count;
+        });
+
+        for (Counters<S> fork : forks) counters.merge(fork);
+        for (int c = 0; c < chunks; c++) {
+            offsets[c + 1] += offsets[c];
+            valueOffsets[c + 1] += valueOffsets[c];
+        }
+        dst.resize(offsets[chunks], valueOffsets[chunks]);
+
+        // write chunks at their offsets
+        forEachChunk(chunks, c -> {
+            int from = c * CHUNK_SIZE, to = Math.min(src.size, from + CHUNK_SIZE);
+            Production<S>[] chunk = selected[c];
+            IntScope<S> scope = new IntScope<>(seed, alphabet);
+            scope.word = src;
+            scope.generation = generation;
+            scope.contexts = index;
+            int pos = (int) offsets[c], vpos = (int) valueOffsets[c];
+            int[] lane = dst.offsets;
+            for (int i = from; i < to; i++) {
+                Production<S> p = chunk[i - from];
+                if (p == null) {
+                    dst.symbols[pos] = src.symbols[i];
+                    if (lane != null) lane[pos] = vpos;
+                    int m = src.params(i);
+                    if (m > 0) {
+                        System.arraycopy(src.values, src.offsets[i], dst.values, vpos, m);
+                        System.arraycopy(src.kinds, src.offsets[i], dst.kinds, vpos, m);
+                        vpos += m;
+                    }
+                    pos++;
+                    continue;
+                }
+
+                System.arraycopy(p.symbols, 0, dst.symbols, pos, p.symbols.length);
+                if (p.params == null) {
+                    if (lane != null) Arrays.fill(lane, pos, pos + p.symbols.length, vpos);
+                } else {
+                    // selection is repeated so that values set by conditions are visible to functions
+                    int symbol = src.symbols[i], r = dispatch.lookup(symbol);
+                    scope.enter(i, symbol, names[r], src, i);
+                    scope.seq = pos;
+                    select(r, scope);
+                    for (int k = 0; k < p.symbols.length; k++) {
+                        scope.seq = pos + k;
+                        lane[pos + k] = vpos;
+                        Function<State<S>, State.Var>[] fns = p.params[k];
+                        for (int j = 0; j < fns.length; j++) {
+                            State.Var v = fns[j].apply(scope);
+                            dst.values[vpos] = v.doubleVal();
+                            dst.kinds[vpos++] = Value.kind(v);
+                        }
+                    }
+                }
+                pos += p.symbols.length;
+            }
+        });
+    }
+
+    private static void forEachChunk(int chunks, IntConsumer action) {
+        if (chunks == 0) return;
+        ForkJoinPool.commonPool().invoke(new ChunkAction(0, chunks, action));
+    }
+
+    /* Batches carry codes, so they are only passed to interpreters of int symbols */
+    private boolean batching(Interpreter<S, ?> interpreter) {
+        return (alphabet == Alphabet.INTEGERS && interpreter.isBatching());
+    }
+
+    private <R> R interpret(IntWord word, Interpreter<S, R> interpreter) {
+        IntScope<S> scope = new IntScope<>(seed, alphabet);
+        scope.word = word;
+        interpreter.before(scope);
+        if (batching(interpreter)) {
+            for (int from = 0; from < word.size; from += CHUNK_SIZE) {
+                interpreter.interpretBatch(word.symbols, from, Math.min(word.size, from + CHUNK_SIZE), word);
+            }
+        } else for (int i = 0, n = word.size; i < n; i++) {
+            int symbol = word.symbols[i];
+            int r = dispatch.lookup(symbol);
+            scope.enter(i, symbol, r >= 0 ? names[r] : Rule.NO_NAMES, word, i);
+            scope.seq = i;
+            interpreter.interpret(scope);
+        }
+        scope.enter(-1, 0, Rule.NO_NAMES);
+        scope.seq = word.size;
+        interpreter.after(scope);
+        return interpreter.getResult();
+    }
+
+    private <R> R interpret(PackedWord word, Interpreter<S, R> interpreter) {
+        IntScope<S> scope = new IntScope<>(seed, alphabet);
+        interpreter.before(scope);
+        boolean batching = batching(interpreter);
+        int[] chunk = new int[(int) Math.min(CHUNK_SIZE, word.size)];
+        for (long from = 0; from < word.size; from += CHUNK_SIZE) {
+            int n = (int) Math.min(CHUNK_SIZE, word.size - from);
+            word.unpack(from, chunk, n);
+            for (int i = 0; i < n; i++) chunk[i] = codes[chunk[i]];
+            interpret(chunk, n, from, batching, interpreter, scope);
+        }
+        scope.enter(-1, 0, Rule.NO_NAMES);
+        scope.seq = word.size;
+        interpreter.after(scope);
+        return interpreter.getResult();
+    }
+
+    /* Passes a chunk of parameterless symbols starting at a position of the generation */
+    private <R> void interpret(int[] chunk, int n, long from, boolean batching, Interpreter<S, R> interpreter,
+                               IntScope<S> scope) {
+        if (batching) {
+            interpreter.interpretBatch(chunk, 0, n, NO_PARAMS);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            int r = dispatch.lookup(chunk[i]);
+            scope.enter(from + i, chunk[i], r >= 0 ? names[r] : Rule.NO_NAMES);
+            scope.seq = from + i;
+            interpreter.interpret(scope);
+        }
+    }
+
+    /*
+     * Expands the axiom depth-first. Level g of the stack holds symbols of generation g produced
+     * by a single symbol of generation g - 1 (or the axiom for level 0). Symbols of each generation
+     * are visited in order, so counting them gives exactly the positions the iterative rewrite uses.
+     */
+    private <R> R stream(int derivations, Interpreter<S, R> interpreter) {
+        IntWord[] levels = new IntWord[derivations + 1];
+        int[] next = new int[derivations + 1];
+        long[] positions = new long[derivations + 1];
+        levels[0] = axiom;
+        for (int g = 1; g <= derivations; g++) levels[g] = new IntWord(4);
+
+        IntScope<S> scope = new IntScope<>(seed, alphabet), output = new IntScope<>(seed, alphabet);
+        Counters<S> counters = (listener != null && derivations > 0 ? new Counters<>(rules) : null);
+        if (counters != null) counters.start(derivations);
+        scope.counters = counters;
+        interpreter.before(output);
+        boolean batching = batching(interpreter);
+
+        int g = 0;
+        while (g >= 0) {
+            IntWord level = levels[g];
+            if (next[g] == level.size) {
+                g--;
+                continue;
+            }
+            if (g == derivations && batching) {
+                // the whole production is passed at once
+                interpreter.interpretBatch(level.symbols, next[g], level.size, level);
+                positions[g] += level.size - next[g];
+                next[g] = level.size;
+                continue;
+            }
+
+            int k = next[g]++;
+            int symbol = level.symbols[k];
+            long position = positions[g]++;
+            int r = dispatch.lookup(symbol);
+            if (g == derivations) {
+                output.enter(position, symbol, r >= 0 ? names[r] : Rule.NO_NAMES, level, k);
+                output.seq = position;
+                interpreter.interpret(output);
+                continue;
+            }
+
+            Production<S> p = (r >= 0 ? fixed[r] : null);
+            if (r >= 0 && (p == null || p.params != null)) {
+                scope.generation = g;
+                scope.enter(position, symbol, names[r], level, k);
+                scope.seq = positions[g + 1];
+                if (p == null) p = select(r, scope);
+            }
+            if (r >= 0 && counters != null) counters.hit(r, p != null ? p.index : -1);
+
+            IntWord out = levels[++g];
+            out.clear();
+            next[g] = 0;
+            if (p == null) {
+                out.copy(level, k);
+            } else if (p.params == null) {
+                out.append(p.symbols);
+            } else {
+                for (int i = 0; i < p.symbols.length; i++) {
+                    scope.seq = positions[g] + i;
+                    out.add(p.symbols[i]);
+                    evaluate(p.params[i], scope, out);
+                }
+            }
+        }
+
+        if (counters != null) {
+            counters.finish(positions[derivations]);
+            listener.derived(counters);
+        }
+        output.enter(-1, 0, Rule.NO_NAMES);
+        output.seq = positions[derivations];
+        interpreter.after(output);
+        return interpreter.getResult();
+    }
+
+    private Production<S> select(int r, IntScope<S> scope) {
+        if (aliases[r] != null) {
+            int branch = aliases[r].sample(scope.random());
+            return (branch >= 0 ? productions[r][branch] : null);
+        }
+        for (Production<S> p : productions[r]) {
+            if (p.condition == null || p.condition.test(scope)) return p;
+        }
+        return null;
+    }
+
+    private static <S> void evaluate(Function<State<S>, State.Var>[] params, IntScope<S> scope, IntWord dst) {
+        for (int i = 0; i < params.length; i++) {
+            State.Var v = params[i].apply(scope);
+            dst.param(Value.kind(v), v.doubleVal());
+        }
+    }
+
+    /**
+     * Recursively splits a range of chunks between fork/join workers.
+     */
+    private static final class ChunkAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+        private final IntConsumer action;
+
+        ChunkAction(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkAction(from, mid, action), new ChunkAction(mid, to, action));
+            }
+        }
+    }
+
+    /**
+     * Adapts a reducer to sequential interpretation.
+     */
+    private static final class Reduction<S, R> implements Interpreter<S, R> {
+        private final Reducer<S, R> reducer;
+        private R result;
+
+        Reduction(Reducer<S, R> reducer) {
+            this.reducer = reducer;
+        }
+
+        @Override
+        public void before(State<S> state) {
+            result = reducer.identity();
+        }
+
+        @Override
+        public void interpret(State<S> state) {
+            result = reducer.accumulate(result, state);
+        }
+
+        @Override
+        public R getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * A rule branch with successor symbols unboxed.
+     */
+    private static final class Production<S> {
+        final int index;
+        final Condition<S> condition;
+        final int[] symbols;
+        final Function<State<S>, State.Var>[][] params;
+        final int count;
+        /* successor symbols of the packed tier, see PackedWord#patterns */
+        long[] packed;
+
+        /* a production of parameterless symbols having no condition */
+        Production(int index, int[] symbols) {
+            this.index = index;
+            this.condition = null;
+            this.symbols = symbols;
+            this.params = null;
+            this.count = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        Production(Rule.Branch<S> branch, Alphabet<S> alphabet) {
+            this.index = branch.index;
+            this.condition = branch.condition;
+            this.symbols = branch.successors.stream().mapToInt(s -> alphabet.code(s.symbol)).toArray();
+            this.count = branch.successors.stream().mapToInt(s -> s.params.size()).sum();
+            this.params = (count > 0
+                    ? branch.successors.stream().map(Production::functions).toArray(Function[][]::new)
+                    : null);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static <S> Function<State<S>, State.Var>[] functions(Rule.Successor<S> successor) {
+            return successor.params.toArray(new Function[0]);
+        }
+    }
+
+    /**
+     * Scope over a generation of {@code int} symbols.
+     */
+    private static final class IntScope<S> extends Scope<S> {
+        final Alphabet<S> alphabet;
+        IntWord word;
+        int symbol;
+
+        IntScope(long seed, Alphabet<S> alphabet) {
+            super(seed);
+            this.alphabet = alphabet;
+        }
+
+        void enter(long position, int symbol, String[] names) {
+            this.symbol = symbol;
+            enter(position, names);
+        }
+
+        void enter(long position, int symbol, String[] names, IntWord params, int index) {
+            this.symbol = symbol;
+            enter(position, names, params, index);
+        }
+
+        @Override
+        int length() {
+            return word.size;
+        }
+
+        @Override
+        int codeAt(int index) {
+            return word.symbols[index];
+        }
+
+        @Override
+        public boolean is(S symbol) {
+            return (position >= 0 && symbol != null && this.symbol == alphabet.code(symbol));
+        }
+
+        @Override
+        public S sym() {
+            return (position >= 0 ? alphabet.symbol(symbol) : null);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>Turtle graphics interpreter computing the bounding box of drawn segments.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class BoundsTurtle<S> extends TurtleInterpreter<S, double[]> {
+
+    private double minX, minY, maxX, maxY;
+
+    /**
+     * @param step the default step length.
+     * @param angle the default turn angle in degrees.
+     */
+    BoundsTurtle(double step, double angle) {
+        super(step, angle);
+    }
+
+    @Override
+    void start() {
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+    }
+
+    @Override
+    void segment(double x0, double y0, double x1, double y1) {
+        minX = Math.min(minX, Math.min(x0, x1));
+        minY = Math.min(minY, Math.min(y0, y1));
+        maxX = Math.max(maxX, Math.max(x0, x1));
+        maxY = Math.max(maxY, Math.max(y0, y1));
+    }
+
+    /**
+     * @return the bounding box as {@code minX, minY, maxX, maxY}, all zeros if nothing was drawn.
+     */
+    @Override
+    public double[] getResult() {
+        return (minX <= maxX ? new double[]{minX, minY, maxX, maxY} : new double[4]);
+    }
+}
@@ -0,0 +1,51 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>Mutable {@link LSystem.State.Var} implementation recycled by {@link Scope}, so that
+ * variables and function results do not allocate while rewriting.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class Cell implements LSystem.State.Var {
+
+    byte kind;
+    double value;
+
+    /**
+     * Updates this cell.
+     * @param kind the kind of value, one of {@link Value} kind constants.
+     * @param value the value.
+     * @return this cell.
+     */
+    Cell set(byte kind, double value) {
+        this.kind = kind;
+        this.value = value;
+        return this;
+    }
+
+    @Override
+    public boolean booleanVal() {
+        return (value != 0.0);
+    }
+
+    @Override
+    public double doubleVal() {
+        return value;
+    }
+
+    @Override
+    public int intVal() {
+        return (int) value;
+    }
+
+    @Override
+    public int compareTo(LSystem.State.Var other) {
+        return Double.compare(value, other.doubleVal());
+    }
+
+    @Override
+    public String toString() {
+        return Value.toString(kind, value);
+    }
+}
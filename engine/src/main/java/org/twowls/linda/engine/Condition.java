@@ -0,0 +1,76 @@
+package org.twowls.linda.engine;
+
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * <p>A condition guarding a branch of a rule.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+@FunctionalInterface
+interface Condition<S> {
+
+    /**
+     * Evaluates this condition against the symbol currently being rewritten.
+     * @param scope the rewriting scope.
+     * @return {@code true} if condition is met, otherwise {@code false}.
+     */
+    boolean test(Scope<S> scope);
+
+    /**
+     * Creates a condition evaluating user supplied function.
+     * @param fn the function, must not be {@code null}.
+     * @return a condition instance.
+     */
+    static <S> Condition<S> when(Function<LSystem.State<S>, Boolean> fn) {
+        requireNonNull(fn);
+        return scope -> Boolean.TRUE.equals(fn.apply(scope));
+    }
+
+    /**
+     * Creates a condition that is met when random number associated with the current symbol falls
+     * into range {@code from..to} (upper bound exclusive).
+     * @param from the lower bound of the range.
+     * @param to the upper bound of the range.
+     * @return a condition instance.
+     */
+    static <S> Condition<S> chance(double from, double to) {
+        return new Chance<>(from, to);
+    }
+
+    static <S> Condition<S> not(Condition<S> c) {
+        return scope -> !c.test(scope);
+    }
+
+    static <S> Condition<S> and(Condition<S> a, Condition<S> b) {
+        return scope -> a.test(scope) && b.test(scope);
+    }
+
+    static <S> Condition<S> or(Condition<S> a, Condition<S> b) {
+        return scope -> a.test(scope) || b.test(scope);
+    }
+
+    /**
+     * A condition met with a fixed probability, recognized by {@link AliasTable#of(Rule)}.
+     */
+    final class Chance<S> implements Condition<S> {
+        final double from;
+        final double to;
+
+        Chance(double from, double to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean test(Scope<S> scope) {
+            double r = scope.random();
+            return (r >= from && r < to);
+        }
+    }
+}
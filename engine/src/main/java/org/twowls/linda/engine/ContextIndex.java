@@ -0,0 +1,205 @@
+package org.twowls.linda.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * <p>Nearest neighbours of every symbol of a generation as seen by context conditions. Each distinct
+ * set of {@link LSystem.Builder#skipping skipped} symbols has its own pair of tables giving the previous
+ * and the next neighbour of a position, so that a context condition is tested in time proportional
+ * to its length. The tables are rebuilt in linear time once per generation. Skipped, context and bracket
+ * symbols are resolved to {@code int} codes when an L-System is built, so that neither rebuilding tables
+ * nor testing conditions looks symbols up in the {@link Alphabet}.</p>
+ *
+ * <p>If branch delimiters are {@link LSystem.Builder#brackets declared}, neighbours follow the branching
+ * structure: a symbol starting a branch follows the symbol preceding the branch, a branch is jumped over
+ * when looking for the next symbol and so is a complete sibling branch when looking for the previous
+ * symbol, while the end of a branch has no next symbol.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class ContextIndex<S> {
+
+    private static final int[] NONE = new int[0];
+
+    private final int[][] skips;
+    private final int[] keys;
+    private final int[][] symbols;
+    private final boolean brackets;
+    private final int open;
+    private final int close;
+    private final int[][] prev;
+    private final int[][] next;
+    private int[] match = new int[0];
+    private int[] stack = new int[16];
+
+    /**
+     * @param skips codes of distinct sets of skipped symbols indexed by key.
+     * @param keys keys of context conditions indexed by their ids.
+     * @param symbols codes of symbols matched by context conditions indexed by their ids.
+     * @param brackets {@code true} if branch delimiters are declared.
+     * @param open the code of the symbol starting a branch.
+     * @param close the code of the symbol ending a branch.
+     */
+    ContextIndex(int[][] skips, int[] keys, int[][] symbols, boolean brackets, int open, int close) {
+        this.skips = skips;
+        this.keys = keys;
+        this.symbols = symbols;
+        this.brackets = brackets;
+        this.open = open;
+        this.close = close;
+        this.prev = new int[skips.length][0];
+        this.next = new int[skips.length][0];
+    }
+
+    /**
+     * Assigns keys to context conditions of rules, conditions skipping the same symbols share a key.
+     * Keys are kept by the index rather than by conditions, since rules may be shared by L-Systems.
+     * @param rules the rules.
+     * @param alphabet the alphabet of the L-System.
+     * @param open the symbol starting a branch or {@code null}.
+     * @param close the symbol ending a branch or {@code null}.
+     * @return a function creating an empty index per rewrite, or {@code null} if no rule has context conditions.
+     */
+    static <S> Supplier<ContextIndex<S>> of(Collection<Rule<S>> rules, Alphabet<S> alphabet, S open, S close) {
+        List<Set<S>> sets = new ArrayList<>();
+        int[] keys = NONE;
+        int[][] symbols = new int[0][];
+        for (Rule<S> rule : rules) {
+            for (Rule.Branch<S> branch : rule.branches) {
+                if (!branch.contextual) continue;
+                int key = sets.indexOf(branch.skip);
+                if (key < 0) {
+                    key = sets.size();
+                    sets.add(branch.skip);
+                }
+                for (Rule.Context<S> context : branch.contexts) {
+                    int id = context.id;
+                    if (id >= keys.length) {
+                        keys = Arrays.copyOf(keys, Math.max(id + 1, 2 * keys.length));
+                        symbols = Arrays.copyOf(symbols, keys.length);
+                    }
+                    keys[id] = key;
+                    symbols[id] = codes(context.symbols, alphabet);
+                }
+            }
+        }
+        if (sets.isEmpty()) return null;
+
+        int[][] skips = new int[sets.size()][];
+        for (int k = 0; k < skips.length; k++) skips[k] = codes(sets.get(k), alphabet);
+        int[] assigned = keys;
+        int[][] matched = symbols;
+        boolean brackets = (open != null);
+        int o = (brackets ? alphabet.code(open) : -1), c = (brackets ? alphabet.code(close) : -1);
+        return () -> new ContextIndex<>(skips, assigned, matched, brackets, o, c);
+    }
+
+    /**
+     * @param id the id of a context condition.
+     * @return the key of the condition.
+     */
+    int key(int id) {
+        return keys[id];
+    }
+
+    /**
+     * @param id the id of a context condition.
+     * @return codes of the symbols matched by the condition.
+     */
+    int[] symbols(int id) {
+        return symbols[id];
+    }
+
+    /**
+     * Rebuilds the tables for the generation of a scope.
+     * @param scope the scope.
+     */
+    void build(Scope<S> scope) {
+        int n = scope.length();
+        if (brackets) matchBrackets(scope, n);
+        for (int k = 0; k < skips.length; k++) {
+            int[] skip = skips[k];
+            if (prev[k].length < n) {
+                prev[k] = new int[IntWord.newCapacity(prev[k].length, n, IntWord.TOO_LARGE)];
+                next[k] = new int[prev[k].length];
+            }
+
+            // p[j] is the nearest neighbour at or before j, q[j] is the nearest one at or after j
+            int[] p = prev[k], q = next[k];
+            for (int j = 0; j < n; j++) {
+                int c = scope.codeAt(j), r;
+                if (contains(skip, c)) r = (j > 0 ? p[j - 1] : -1);
+                else if (brackets && c == close) r = (match[j] > 0 ? p[match[j] - 1] : -1);
+                else if (brackets && c == open) r = (j > 0 ? p[j - 1] : -1);
+                else r = j;
+                p[j] = r;
+            }
+            for (int j = n - 1; j >= 0; j--) {
+                int c = scope.codeAt(j), r;
+                if (contains(skip, c)) r = (j < n - 1 ? q[j + 1] : -1);
+                else if (brackets && c == open) r = (match[j] >= 0 && match[j] < n - 1 ? q[match[j] + 1] : -1);
+                else if (brackets && c == close) r = -1;
+                else r = j;
+                q[j] = r;
+            }
+        }
+    }
+
+    /**
+     * @param key the key of a context condition.
+     * @param index position of a symbol.
+     * @return position of the previous neighbour of the symbol or {@code -1} if there is none.
+     */
+    int prev(int key, int index) {
+        return (index > 0 ? prev[key][index - 1] : -1);
+    }
+
+    /**
+     * @param key the key of a context condition.
+     * @param index position of a symbol.
+     * @param length number of symbols in the generation.
+     * @return position of the next neighbour of the symbol or {@code -1} if there is none.
+     */
+    int next(int key, int index, int length) {
+        return (index < length - 1 ? next[key][index + 1] : -1);
+    }
+
+    private void matchBrackets(Scope<S> scope, int n) {
+        if (match.length < n) match = new int[IntWord.newCapacity(match.length, n, IntWord.TOO_LARGE)];
+        int depth = 0;
+        for (int j = 0; j < n; j++) {
+            match[j] = -1;
+            int c = scope.codeAt(j);
+            if (c == open) {
+                if (depth == stack.length) stack = Arrays.copyOf(stack, 2 * depth);
+                stack[depth++] = j;
+            } else if (c == close && depth > 0) {
+                int i = stack[--depth];
+                match[i] = j;
+                match[j] = i;
+            }
+        }
+    }
+
+    private static <S> int[] codes(Collection<S> symbols, Alphabet<S> alphabet) {
+        int[] codes = new int[symbols.size()];
+        int i = 0;
+        for (S symbol : symbols) codes[i++] = alphabet.code(symbol);
+        return codes;
+    }
+
+    private static boolean contains(int[] codes, int code) {
+        for (int c : codes) {
+            if (c == code) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,197 @@
+package org.twowls.linda.engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Mutable {@link LSystem.Metrics} collected by rewriting engines when a listener is registered.
+ * Rule hits are kept in one primitive array per rule: a slot per branch followed by a slot counting
+ * symbols no branch has been selected for. Each thread rewriting a part of a generation works on its
+ * own {@link #fork() fork}, forks are then {@link #merge merged}.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class Counters<S> implements LSystem.Metrics<S> {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATIONS = allocationsSupported();
+
+    private final List<S> symbols;
+    private final String[][] labels;
+    private final long[][] hits;
+    private long contextAttempts;
+    private long contextMatches;
+    private int generation;
+    private long size;
+    private long nanos;
+    private long bytes;
+    private long startNanos;
+    private long startBytes;
+
+    /**
+     * @param rules the rules in order of definition.
+     */
+    Counters(List<? extends Rule<S>> rules) {
+        this.symbols = rules.stream().map(r -> r.symbol).collect(Collectors.toList());
+        this.labels = rules.stream().map(r -> r.branches.stream().map(b -> b.label).toArray(String[]::new))
+                .toArray(String[][]::new);
+        this.hits = newHits(labels);
+    }
+
+    private Counters(Counters<S> template) {
+        this.symbols = template.symbols;
+        this.labels = template.labels;
+        this.hits = newHits(labels);
+    }
+
+    /**
+     * @return new counters sharing rule descriptions with these ones.
+     */
+    Counters<S> fork() {
+        return new Counters<>(this);
+    }
+
+    /**
+     * Adds up counters of a fork to these counters.
+     * @param fork the fork.
+     */
+    void merge(Counters<S> fork) {
+        for (int r = 0; r < hits.length; r++) {
+            for (int b = 0; b < hits[r].length; b++) hits[r][b] += fork.hits[r][b];
+        }
+        contextAttempts += fork.contextAttempts;
+        contextMatches += fork.contextMatches;
+    }
+
+    /**
+     * Resets counters before a derivation.
+     * @param generation number of the generation to be derived.
+     */
+    void start(int generation) {
+        for (long[] h : hits) Arrays.fill(h, 0L);
+        contextAttempts = 0;
+        contextMatches = 0;
+        this.generation = generation;
+        this.startBytes = threadAllocatedBytes();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Completes measurement of a derivation.
+     * @param size number of symbols in the derived generation.
+     */
+    void finish(long size) {
+        this.nanos = System.nanoTime() - startNanos;
+        long current = threadAllocatedBytes();
+        this.bytes = (current >= 0 && startBytes >= 0 ? current - startBytes : -1L);
+        this.size = size;
+    }
+
+    /**
+     * Counts a symbol rewritten by a rule.
+     * @param rule the rule number.
+     * @param branch the number of the selected branch or {@code -1} if no branch has been selected.
+     */
+    void hit(int rule, int branch) {
+        long[] h = hits[rule];
+        h[branch >= 0 ? branch : h.length - 1]++;
+    }
+
+    /**
+     * Counts evaluation of a context condition.
+     * @param matched {@code true} if the condition has been met.
+     */
+    void context(boolean matched) {
+        contextAttempts++;
+        if (matched) contextMatches++;
+    }
+
+    @Override
+    public int generation() {
+        return generation;
+    }
+
+    @Override
+    public long symbols() {
+        return size;
+    }
+
+    @Override
+    public long nanos() {
+        return nanos;
+    }
+
+    @Override
+    public long allocatedBytes() {
+        return bytes;
+    }
+
+    @Override
+    public int rules() {
+        return hits.length;
+    }
+
+    @Override
+    public S symbol(int rule) {
+        return symbols.get(rule);
+    }
+
+    @Override
+    public int branches(int rule) {
+        return labels[rule].length;
+    }
+
+    @Override
+    public String condition(int rule, int branch) {
+        return labels[rule][branch];
+    }
+
+    @Override
+    public long hits(int rule, int branch) {
+        if (branch < 0 || branch >= labels[rule].length) throw new IndexOutOfBoundsException("No such branch: " + branch);
+        return hits[rule][branch];
+    }
+
+    @Override
+    public long misses(int rule) {
+        return hits[rule][labels[rule].length];
+    }
+
+    @Override
+    public long contextAttempts() {
+        return contextAttempts;
+    }
+
+    @Override
+    public long contextMatches() {
+        return contextMatches;
+    }
+
+    private static long[][] newHits(String[][] labels) {
+        long[][] hits = new long[labels.length][];
+        for (int r = 0; r < labels.length; r++) hits[r] = new long[labels[r].length + 1];
+        return hits;
+    }
+
+    /* Allocated bytes of the current thread, only available with HotSpot management extensions */
+    private static long threadAllocatedBytes() {
+        return (ALLOCATIONS ? ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(
+                Thread.currentThread().getId()) : -1L);
+    }
+
+    private static boolean allocationsSupported() {
+        try {
+            if (!(THREADS instanceof com.sun.management.ThreadMXBean)) return false;
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
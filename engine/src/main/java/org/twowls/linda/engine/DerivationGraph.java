@@ -0,0 +1,211 @@
+package org.twowls.linda.engine;
+
+import java.util.Arrays;
+import java.util.function.BinaryOperator;
+
+/**
+ * <p>Compressed representation of generations of a deterministic context-free L-System of
+ * parameterless symbols. A generation is a directed acyclic graph of nodes {@code (symbol, depth)},
+ * the children of a node being the successors of its symbol at {@code depth - 1}, and nodes of depth
+ * zero being symbols of the generation. Equal nodes are shared, so a node is just a cell of the table
+ * of expanded lengths indexed by depth and symbol, and a generation takes {@code O(alphabet * n)}
+ * space however long it is.</p>
+ *
+ * <p>A position is found by descending from the axiom and skipping children by their lengths,
+ * which takes {@code O(n)} steps. Lengths saturate at {@link Long#MAX_VALUE}, which does not affect
+ * positions below it. Symbols are numbered densely, the table is extended on demand.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class DerivationGraph {
+
+    private final int[] axiom;
+    private final int[][] successors;
+    private long[][] lengths;
+
+    /**
+     * @param axiom numbers of the axiom symbols.
+     * @param successors numbers of successor symbols of each symbol, {@code null} for symbols having no rule.
+     */
+    DerivationGraph(int[] axiom, int[][] successors) {
+        this.axiom = axiom;
+        this.successors = successors;
+        long[] ones = new long[successors.length];
+        Arrays.fill(ones, 1L);
+        this.lengths = new long[][] {ones};
+    }
+
+    /**
+     * @param depth the number of derivations.
+     * @return the number of symbols of the generation, or {@link Long#MAX_VALUE} if it does not fit.
+     */
+    long length(int depth) {
+        long[] row = table(depth)[depth];
+        long length = 0L;
+        for (int s : axiom) length = add(length, row[s]);
+        return length;
+    }
+
+    /**
+     * @param symbol the number of a symbol.
+     * @param depth the number of derivations.
+     * @return the number of symbols the symbol expands to, or {@link Long#MAX_VALUE} if it does not fit.
+     */
+    long length(int symbol, int depth) {
+        return table(depth)[depth][symbol];
+    }
+
+    /**
+     * Expands a single symbol.
+     * @param symbol the number of the symbol.
+     * @param depth the number of derivations.
+     * @return numbers of the symbols the symbol expands to.
+     */
+    int[] expand(int symbol, int depth) {
+        int[] out = new int[Math.toIntExact(length(symbol, depth))];
+        if (out.length == 0) return out;
+        Cursor cursor = cursor(new int[] {symbol}, depth, 0L);
+        for (int i = 0; i < out.length; i++) out[i] = cursor.next();
+        return out;
+    }
+
+    /**
+     * @param depth the number of derivations.
+     * @param index the symbol position, must be less than {@link #length(int)}.
+     * @return the number of the symbol at the position.
+     */
+    int symbolAt(int depth, long index) {
+        return cursor(depth, index).next();
+    }
+
+    /**
+     * @param depth the number of derivations.
+     * @param index position of the first symbol to visit, must be less than {@link #length(int)}.
+     * @return a cursor visiting symbols of the generation in order.
+     */
+    Cursor cursor(int depth, long index) {
+        return cursor(axiom, depth, index);
+    }
+
+    private Cursor cursor(int[] roots, int depth, long index) {
+        long[][] table = table(depth);
+        Cursor cursor = new Cursor(depth);
+        int[] children = roots;
+        for (int d = depth; ; d--) {
+            long[] row = table[d];
+            int k = 0;
+            while (index >= row[children[k]]) index -= row[children[k++]];
+            cursor.push(children, k);
+            int s = children[k];
+            if (d == 0 || successors[s] == null) return cursor;
+            children = successors[s];
+        }
+    }
+
+    /**
+     * Reduces a generation by combining results of nodes, each computed once.
+     * @param depth the number of derivations.
+     * @param leaves results of single symbols.
+     * @param identity the result of no symbols.
+     * @param combine the associative function combining results.
+     * @return the result of the generation.
+     */
+    @SuppressWarnings("unchecked")
+    <R> R reduce(int depth, R[] leaves, R identity, BinaryOperator<R> combine) {
+        // only the row of the previous depth is needed
+        R[] row = leaves;
+        for (int d = 1; d <= depth; d++) {
+            R[] next = (R[]) new Object[row.length];
+            for (int s = 0; s < row.length; s++) {
+                if (successors[s] == null) {
+                    next[s] = row[s];
+                    continue;
+                }
+                R r = identity;
+                for (int c : successors[s]) r = combine.apply(r, row[c]);
+                next[s] = r;
+            }
+            row = next;
+        }
+        R r = identity;
+        for (int s : axiom) r = combine.apply(r, row[s]);
+        return r;
+    }
+
+    /* Extends the table of lengths up to a depth, rows are never modified once added */
+    private synchronized long[][] table(int depth) {
+        if (depth >= lengths.length) {
+            int from = lengths.length;
+            lengths = Arrays.copyOf(lengths, Math.max(depth + 1, from + (from >> 1)));
+            for (int d = from; d < lengths.length; d++) {
+                long[] prev = lengths[d - 1], row = new long[successors.length];
+                for (int s = 0; s < row.length; s++) {
+                    if (successors[s] == null) {
+                        row[s] = 1L;
+                        continue;
+                    }
+                    for (int c : successors[s]) row[s] = add(row[s], prev[c]);
+                }
+                lengths[d] = row;
+            }
+        }
+        return lengths;
+    }
+
+    private static long add(long a, long b) {
+        long r = a + b;
+        return (r < 0 ? Long.MAX_VALUE : r);
+    }
+
+    /**
+     * Visits symbols of a generation depth-first. Level {@code t} of the stack holds children
+     * of remaining depth {@code depth - t} and the position of the current one.
+     */
+    final class Cursor {
+        private final int depth;
+        private final int[][] nodes;
+        private final int[] at;
+        private int top = -1;
+
+        private Cursor(int depth) {
+            this.depth = depth;
+            this.nodes = new int[depth + 1][];
+            this.at = new int[depth + 1];
+        }
+
+        private void push(int[] children, int k) {
+            nodes[++top] = children;
+            at[top] = k;
+        }
+
+        /**
+         * @return {@code true} if there are more symbols to visit.
+         */
+        boolean hasNext() {
+            return top >= 0;
+        }
+
+        /**
+         * @return the number of the next symbol.
+         */
+        int next() {
+            int s = nodes[top][at[top]++];
+            settle();
+            return s;
+        }
+
+        /* Moves to the next symbol of depth zero skipping empty productions */
+        private void settle() {
+            while (top >= 0) {
+                if (at[top] == nodes[top].length) {
+                    if (--top >= 0) at[top]++;
+                    continue;
+                }
+                int s = nodes[top][at[top]];
+                if (top == depth || successors[s] == null) return;
+                push(successors[s], 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.twowls.linda.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * <p>{@link LSystem.Listener} committing metrics as JDK Flight Recorder events. Events are only
+ * created when enabled in a running recording.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class FlightRecorderListener<S> implements LSystem.Listener<S> {
+
+    @Override
+    public void derived(LSystem.Metrics<S> metrics) {
+        DerivationEvent derivation = new DerivationEvent();
+        if (derivation.isEnabled()) {
+            derivation.generation = metrics.generation();
+            derivation.symbols = metrics.symbols();
+            derivation.time = metrics.nanos();
+            derivation.allocated = metrics.allocatedBytes();
+            derivation.contextAttempts = metrics.contextAttempts();
+            derivation.contextMatches = metrics.contextMatches();
+            derivation.commit();
+        }
+
+        if (!new RuleHitsEvent().isEnabled()) return;
+        for (int r = 0; r < metrics.rules(); r++) {
+            for (int b = 0; b <= metrics.branches(r); b++) {
+                long hits = (b < metrics.branches(r) ? metrics.hits(r, b) : metrics.misses(r));
+                if (hits == 0) continue;
+                RuleHitsEvent event = new RuleHitsEvent();
+                event.generation = metrics.generation();
+                event.symbol = String.valueOf(metrics.symbol(r));
+                event.branch = (b < metrics.branches(r) ? b : -1);
+                event.condition = (b < metrics.branches(r) ? metrics.condition(r, b) : "none");
+                event.hits = hits;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("org.twowls.linda.Derivation")
+    @Label("Derivation")
+    @Description("A generation derived by an L-System")
+    @Category("Linda")
+    @StackTrace(false)
+    static final class DerivationEvent extends Event {
+
+        @Label("Generation")
+        int generation;
+
+        @Label("Symbols")
+        long symbols;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+
+        @Label("Context Attempts")
+        long contextAttempts;
+
+        @Label("Context Matches")
+        long contextMatches;
+    }
+
+    @Name("org.twowls.linda.RuleHits")
+    @Label("Rule Hits")
+    @Description("Number of symbols rewritten by a rule branch during a derivation, branch -1 counts symbols left unchanged")
+    @Category("Linda")
+    @StackTrace(false)
+    static final class RuleHitsEvent extends Event {
+
+        @Label("Generation")
+        int generation;
+
+        @Label("Symbol")
+        String symbol;
+
+        @Label("Branch")
+        int branch;
+
+        @Label("Condition")
+        String condition;
+
+        @Label("Hits")
+        long hits;
+    }
+}
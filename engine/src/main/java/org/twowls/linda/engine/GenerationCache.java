@@ -0,0 +1,165 @@
+package org.twowls.linda.engine;
+
+import java.lang.ref.SoftReference;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * <p>Bounded cache of derived generations keyed by derivation number. Generations exceeding
+ * the limits are not discarded but spilled to soft references, so they may still be used until
+ * the garbage collector needs memory. Cached generations are shared between rewrites and must
+ * never be modified.</p>
+ *
+ * @param <W> the type of a generation
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class GenerationCache<W> implements LSystem.CacheStats {
+
+    /* Number of soft entries kept per strongly reachable one */
+    private static final int SOFT_RATIO = 4;
+
+    private final TreeMap<Integer, Entry<W>> entries = new TreeMap<>();
+    private final ToLongFunction<W> weigher;
+    private final int maxGenerations;
+    private final long maxBytes;
+    private int generations;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long clock;
+
+    /**
+     * @param maxGenerations maximum number of strongly reachable generations, zero disables caching
+     *  along with statistics, so that a disabled cache is never locked.
+     * @param maxBytes maximum estimated size of strongly reachable generations in bytes.
+     * @param weigher a function estimating size of a generation in bytes.
+     */
+    GenerationCache(int maxGenerations, long maxBytes, ToLongFunction<W> weigher) {
+        this.maxGenerations = maxGenerations;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Finds the deepest cached generation not exceeding {@code derivation}. A generation found
+     * among spilled ones becomes strongly reachable again.
+     * @param derivation the requested derivation number.
+     * @return the derivation number mapped to the generation, or {@code null} if nothing is found.
+     */
+    Map.Entry<Integer, W> floor(int derivation) {
+        return (maxGenerations > 0 ? lookup(derivation) : null);
+    }
+
+    /**
+     * Adds a generation to the cache.
+     * @param derivation the derivation number.
+     * @param word the generation.
+     */
+    void put(int derivation, W word) {
+        if (maxGenerations > 0) add(derivation, word);
+    }
+
+    private synchronized Map.Entry<Integer, W> lookup(int derivation) {
+        Map.Entry<Integer, Entry<W>> e = entries.floorEntry(derivation);
+        while (e != null) {
+            Entry<W> entry = e.getValue();
+            W word = entry.get();
+            if (word != null) {
+                hits++;
+                entry.accessed = ++clock;
+                if (entry.strong == null && entry.weight <= maxBytes) {
+                    entry.strong = word;
+                    generations++;
+                    bytes += entry.weight;
+                    evict();
+                }
+                return new AbstractMap.SimpleImmutableEntry<>(e.getKey(), word);
+            }
+            entries.remove(e.getKey());
+            e = entries.lowerEntry(e.getKey());
+        }
+        misses++;
+        return null;
+    }
+
+    private synchronized void add(int derivation, W word) {
+        if (entries.containsKey(derivation)) return;
+        long weight = weigher.applyAsLong(word);
+        Entry<W> entry = new Entry<>(word, weight);
+        entry.accessed = ++clock;
+        if (weight <= maxBytes) {
+            generations++;
+            bytes += weight;
+        } else {
+            entry.strong = null;
+        }
+        entries.put(derivation, entry);
+        evict();
+    }
+
+    @Override
+    public synchronized long hits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long misses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized int generations() {
+        return generations;
+    }
+
+    @Override
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    private void evict() {
+        while (generations > maxGenerations || bytes > maxBytes) {
+            Entry<W> lru = null;
+            for (Entry<W> entry : entries.values()) {
+                if (entry.strong != null && (lru == null || entry.accessed < lru.accessed)) lru = entry;
+            }
+            lru.strong = null;
+            generations--;
+            bytes -= lru.weight;
+        }
+
+        int excess = entries.size() - maxGenerations * (SOFT_RATIO + 1);
+        for (Iterator<Entry<W>> it = entries.values().iterator(); it.hasNext() && excess > 0; ) {
+            Entry<W> entry = it.next();
+            if (entry.strong == null) {
+                it.remove();
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * A cached generation.
+     */
+    private static final class Entry<W> {
+        final SoftReference<W> soft;
+        final long weight;
+        W strong;
+        long accessed;
+
+        Entry(W word, long weight) {
+            this.soft = new SoftReference<>(word);
+            this.strong = word;
+            this.weight = weight;
+        }
+
+        W get() {
+            return (strong != null ? strong : soft.get());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>{@link LSystem.Builder} implementation for arbitrary symbol types. Symbols are mapped onto
+ * {@code int} codes, see {@link Alphabet#of}.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class GenericSymbolsBuilder<S> extends AbstractBuilder<S, LSystem.Builder<S>> {
+
+    @Override
+    protected LSystem.Builder<S> self() {
+        return this;
+    }
+
+    @Override
+    public LSystem<S> build() {
+        validate();
+        Alphabet<S> alphabet = Alphabet.of(symbols());
+        return new ArrayIntLSystem<>(alphabet, optimizedRules(), axiomSymbols(), rewriteMode(),
+                generationCache(Word::bytes), storage(), listener(), contextIndex(alphabet), seed());
+    }
+}
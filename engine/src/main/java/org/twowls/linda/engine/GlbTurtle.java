@@ -0,0 +1,171 @@
+package org.twowls.linda.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Three-dimensional turtle graphics interpreter writing a tube mesh as binary glTF (GLB) to a channel
+ * while rewriting. Vertices (positions interleaved with normals) and triangle indices go to two regions
+ * of the binary chunk through fixed size buffers, so sizes of both regions have to be known in advance,
+ * for example computed by a {@link MeshSizeTurtle} pass. The JSON chunk, containing bounds of the mesh,
+ * is written last into space reserved at the start of the channel.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class GlbTurtle<S> extends MeshTurtle<S, Long> {
+
+    private static final int MAGIC = 0x46546C67;
+    private static final int VERSION = 2;
+    private static final int JSON_CHUNK = 0x4E4F534A;
+    private static final int BIN_CHUNK = 0x004E4942;
+    private static final int VERTEX_SIZE = 24;
+    private static final int BUFFER_SIZE = 1 << 16;
+    /* The longest string representation of a float */
+    private static final String BOUND_PLACEHOLDER = "-1.17549435E-38";
+
+    private final SeekableByteChannel channel;
+    private final long vertices;
+    private final long triangles;
+    private final ByteBuffer vertexBuffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final float[] min = new float[3], max = new float[3];
+    private int jsonLength;
+    private long vertexPosition;
+    private long indexPosition;
+    private long writtenVertices;
+    private long writtenTriangles;
+
+    /**
+     * @param options the mesh settings.
+     * @param vertices the number of vertices to be written.
+     * @param triangles the number of triangles to be written.
+     * @param channel the channel to write to.
+     */
+    GlbTurtle(MeshOptions options, long vertices, long triangles, SeekableByteChannel channel) {
+        super(options);
+        this.vertices = vertices;
+        this.triangles = triangles;
+        this.channel = channel;
+        if (vertices < 0 || triangles < 0 || 40L + vertices * VERTEX_SIZE + triangles * 12 > 0xFFFFFFFFL)
+            throw new IllegalArgumentException("Invalid size of mesh");
+    }
+
+    @Override
+    void start() {
+        vertexBuffer.clear();
+        indexBuffer.clear();
+        writtenVertices = 0;
+        writtenTriangles = 0;
+        for (int i = 0; i < 3; i++) {
+            min[i] = Float.POSITIVE_INFINITY;
+            max[i] = Float.NEGATIVE_INFINITY;
+        }
+
+        jsonLength = padded(json(BOUND_PLACEHOLDER).length());
+        vertexPosition = 12 + 8 + jsonLength + (triangles > 0 ? 8 : 0);
+        indexPosition = vertexPosition + vertices * VERTEX_SIZE;
+    }
+
+    @Override
+    void ring(long index, double[] v, double[] n) {
+        for (int k = 0; k < 3 * sides; k += 3) {
+            if (++writtenVertices > vertices) throw new IllegalStateException("Mesh has more than " + vertices + " vertices");
+            if (vertexBuffer.remaining() < VERTEX_SIZE) vertexPosition = flush(vertexBuffer, vertexPosition);
+            for (int i = 0; i < 3; i++) {
+                float x = (float) v[k + i];
+                min[i] = Math.min(min[i], x);
+                max[i] = Math.max(max[i], x);
+                vertexBuffer.putFloat(x);
+            }
+            vertexBuffer.putFloat((float) n[k]).putFloat((float) n[k + 1]).putFloat((float) n[k + 2]);
+        }
+    }
+
+    @Override
+    void tube(long from, double[] va, long to, double[] vb) {
+        long a = from * sides, b = to * sides;
+        for (int k = 0; k < sides; k++) {
+            writtenTriangles += 2;
+            if (writtenTriangles > triangles) throw new IllegalStateException("Mesh has more than " + triangles + " triangles");
+            if (indexBuffer.remaining() < 24) indexPosition = flush(indexBuffer, indexPosition);
+            int j = (k + 1) % sides;
+            indexBuffer.putInt((int) (a + k)).putInt((int) (a + j)).putInt((int) (b + j));
+            indexBuffer.putInt((int) (a + k)).putInt((int) (b + j)).putInt((int) (b + k));
+        }
+    }
+
+    @Override
+    void finish() {
+        flush(vertexBuffer, vertexPosition);
+        flush(indexBuffer, indexPosition);
+        if (writtenVertices != vertices || writtenTriangles != triangles) {
+            throw new IllegalStateException("Expected " + vertices + " vertices and " + triangles + " triangles but "
+                    + writtenVertices + " and " + writtenTriangles + " were written");
+        }
+
+        byte[] json = json(null).getBytes(StandardCharsets.US_ASCII);
+        long binLength = vertices * VERTEX_SIZE + triangles * 12;
+        ByteBuffer header = ByteBuffer.allocate(12 + 8 + jsonLength + 8).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt((int) (12 + 8 + jsonLength + (triangles > 0 ? 8 + binLength : 0)));
+        header.putInt(jsonLength).putInt(JSON_CHUNK).put(json);
+        for (int i = json.length; i < jsonLength; i++) header.put((byte) ' ');
+        if (triangles > 0) header.putInt((int) binLength).putInt(BIN_CHUNK);
+        flush(header, 0L);
+    }
+
+    /**
+     * @return number of written triangles.
+     */
+    @Override
+    public Long getResult() {
+        return writtenTriangles;
+    }
+
+    private String json(String bound) {
+        StringBuilder sb = new StringBuilder("{\"asset\":{\"version\":\"2.0\",\"generator\":\"linda\"}");
+        if (triangles == 0) return sb.append('}').toString();
+
+        long vertexBytes = vertices * VERTEX_SIZE, indexBytes = triangles * 12;
+        sb.append(",\"scene\":0,\"scenes\":[{\"nodes\":[0]}],\"nodes\":[{\"mesh\":0}]");
+        sb.append(",\"meshes\":[{\"primitives\":[{\"attributes\":{\"POSITION\":0,\"NORMAL\":1},\"indices\":2}]}]");
+        sb.append(",\"buffers\":[{\"byteLength\":").append(vertexBytes + indexBytes).append("}]");
+        sb.append(",\"bufferViews\":[{\"buffer\":0,\"byteOffset\":0,\"byteLength\":").append(vertexBytes)
+                .append(",\"byteStride\":").append(VERTEX_SIZE).append(",\"target\":34962}");
+        sb.append(",{\"buffer\":0,\"byteOffset\":").append(vertexBytes).append(",\"byteLength\":").append(indexBytes)
+                .append(",\"target\":34963}]");
+        sb.append(",\"accessors\":[{\"bufferView\":0,\"byteOffset\":0,\"componentType\":5126,\"count\":")
+                .append(vertices).append(",\"type\":\"VEC3\",\"min\":[");
+        for (int i = 0; i < 3; i++) sb.append(i > 0 ? "," : "").append(bound != null ? bound : Float.toString(min[i]));
+        sb.append("],\"max\":[");
+        for (int i = 0; i < 3; i++) sb.append(i > 0 ? "," : "").append(bound != null ? bound : Float.toString(max[i]));
+        sb.append("]},{\"bufferView\":0,\"byteOffset\":12,\"componentType\":5126,\"count\":").append(vertices)
+                .append(",\"type\":\"VEC3\"}");
+        sb.append(",{\"bufferView\":1,\"byteOffset\":0,\"componentType\":5125,\"count\":").append(triangles * 3)
+                .append(",\"type\":\"SCALAR\"}]}");
+        return sb.toString();
+    }
+
+    private static int padded(int length) {
+        return (length + 3) & ~3;
+    }
+
+    /* Writes buffer contents at given position of the channel, returns the position following them */
+    private long flush(ByteBuffer buffer, long position) {
+        buffer.flip();
+        try {
+            channel.position(position);
+            while (buffer.hasRemaining()) position += channel.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+        return position;
+    }
+}
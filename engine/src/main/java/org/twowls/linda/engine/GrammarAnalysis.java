@@ -0,0 +1,182 @@
+package org.twowls.linda.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Static analysis of rules collected by a builder, see {@link LSystem.Analysis}. The analysis
+ * never modifies collected rules, optimized ones are copies sharing conditions and successors
+ * with the originals.</p>
+ *
+ * <p>Constant rules are folded first. Symbols occurring in generations are then found by following
+ * successors of all branches from the axiom, so a symbol is considered reachable even if the
+ * conditions of the branches producing it never hold.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class GrammarAnalysis<S> implements LSystem.Analysis<S> {
+
+    private final List<Rule<S>> rules = new ArrayList<>();
+    private final Set<S> copied = new LinkedHashSet<>();
+    private final Set<S> unreachable = new LinkedHashSet<>();
+    private final Set<S> constant = new LinkedHashSet<>();
+    private final Set<S> skippedOnly = new LinkedHashSet<>();
+
+    /**
+     * @param rules collected rules in order of definition.
+     * @param axiom the axiom symbols.
+     */
+    GrammarAnalysis(Collection<Rule<S>> rules, List<Rule.Successor<S>> axiom) {
+        Set<S> parametrized = new HashSet<>();
+        for (Rule.Successor<S> s : axiom) {
+            if (!s.params.isEmpty()) parametrized.add(s.symbol);
+        }
+        for (Rule<S> rule : rules) {
+            for (Rule.Branch<S> branch : rule.branches) {
+                for (Rule.Successor<S> s : branch.successors) {
+                    if (!s.params.isEmpty()) parametrized.add(s.symbol);
+                }
+            }
+        }
+
+        Map<S, Rule<S>> folded = new LinkedHashMap<>();
+        for (Rule<S> rule : rules) {
+            Rule<S> r = fold(rule, parametrized);
+            if (r != rule) constant.add(rule.symbol);
+            if (r != null) folded.put(r.symbol, r);
+        }
+
+        Set<S> reachable = new HashSet<>();
+        Deque<S> queue = new ArrayDeque<>();
+        for (Rule.Successor<S> s : axiom) {
+            if (reachable.add(s.symbol)) queue.add(s.symbol);
+        }
+        while (!queue.isEmpty()) {
+            S symbol = queue.poll();
+            Rule<S> rule = folded.get(symbol);
+            if (rule == null) {
+                copied.add(symbol);
+                continue;
+            }
+            for (Rule.Branch<S> branch : rule.branches) {
+                for (Rule.Successor<S> s : branch.successors) {
+                    if (reachable.add(s.symbol)) queue.add(s.symbol);
+                }
+            }
+        }
+
+        for (Rule<S> rule : folded.values()) {
+            if (!reachable.contains(rule.symbol)) {
+                unreachable.add(rule.symbol);
+                continue;
+            }
+            this.rules.add(strip(rule, reachable));
+        }
+    }
+
+    /**
+     * @return optimized rules in order of definition.
+     */
+    List<Rule<S>> rules() {
+        return rules;
+    }
+
+    @Override
+    public Set<S> copied() {
+        return Collections.unmodifiableSet(copied);
+    }
+
+    @Override
+    public Set<S> unreachable() {
+        return Collections.unmodifiableSet(unreachable);
+    }
+
+    @Override
+    public Set<S> constant() {
+        return Collections.unmodifiableSet(constant);
+    }
+
+    @Override
+    public Set<S> skippedOnly() {
+        return Collections.unmodifiableSet(skippedOnly);
+    }
+
+    @Override
+    public String toString() {
+        return "copied: " + copied + "\nunreachable: " + unreachable + "\nconstant: " + constant
+                + "\nskipped only: " + skippedOnly;
+    }
+
+    /* Returns the rule itself, a rule having a single unconditional branch, or null to strip the rule */
+    private static <S> Rule<S> fold(Rule<S> rule, Set<S> parametrized) {
+        if (rule.branches.isEmpty()) return null;
+        Rule.Branch<S> first = rule.branches.get(0);
+        List<S> out = new ArrayList<>();
+        for (Rule.Successor<S> s : first.successors) {
+            if (!s.params.isEmpty()) return rule;
+            out.add(s.symbol);
+        }
+        for (Rule.Branch<S> branch : rule.branches) {
+            if (branch.successors.size() != out.size()) return rule;
+            for (int i = 0; i < out.size(); i++) {
+                Rule.Successor<S> s = branch.successors.get(i);
+                if (!s.params.isEmpty() || !s.symbol.equals(out.get(i))) return rule;
+            }
+        }
+
+        // a symbol having parameters loses them when produced by itself without parameters
+        if (out.size() == 1 && out.get(0).equals(rule.symbol) && !parametrized.contains(rule.symbol)) return null;
+        Rule.Branch<S> last = rule.branches.get(rule.branches.size() - 1);
+        if (last.condition != null || rule.branches.size() == 1) return rule;
+
+        Rule<S> r = new Rule<>(rule.symbol);
+        r.names = rule.names;
+        Rule.Branch<S> b = new Rule.Branch<>(0);
+        b.successors.addAll(first.successors);
+        r.branches.add(b);
+        return r;
+    }
+
+    /* Removes symbols never occurring in generations from skipped symbols */
+    private Rule<S> strip(Rule<S> rule, Set<S> reachable) {
+        boolean stripped = false;
+        for (Rule.Branch<S> branch : rule.branches) {
+            for (S s : branch.skip) {
+                if (!reachable.contains(s)) {
+                    skippedOnly.add(s);
+                    stripped = true;
+                }
+            }
+        }
+        if (!stripped) return rule;
+
+        Rule<S> r = new Rule<>(rule.symbol);
+        r.names = rule.names;
+        for (Rule.Branch<S> branch : rule.branches) {
+            Rule.Branch<S> b = new Rule.Branch<>(branch.index);
+            for (S s : branch.skip) {
+                if (reachable.contains(s)) b.skip.add(s);
+            }
+            b.successors.addAll(branch.successors);
+            b.contexts.addAll(branch.contexts);
+            b.condition = branch.condition;
+            b.label = branch.label;
+            b.contextual = branch.contextual;
+            b.fallback = branch.fallback;
+            r.branches.add(b);
+        }
+        return r;
+    }
+}
@@ -0,0 +1,151 @@
+package org.twowls.linda.engine;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Growth matrix of a deterministic context-free L-System (D0L-System). Element {@code (i, j)}
+ * is the number of occurrences of symbol {@code j} in the production of symbol {@code i}, so the
+ * number of occurrences of each symbol after {@code n} derivations (Parikh vector) equals the axiom's
+ * Parikh vector multiplied by the {@code n}-th power of the matrix.</p>
+ *
+ * <p>Powers are computed by repeated squaring in {@code long} arithmetic, switching to
+ * {@link BigInteger} once a value does not fit.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class GrowthMatrix<S> {
+
+    private final List<S> alphabet;
+    private final long[][] matrix;
+    private final long[] axiom;
+
+    private GrowthMatrix(List<S> alphabet, long[][] matrix, long[] axiom) {
+        this.alphabet = alphabet;
+        this.matrix = matrix;
+        this.axiom = axiom;
+    }
+
+    /**
+     * Creates a growth matrix of an L-System.
+     * @param rules rules of the L-System.
+     * @param axiom axiom of the L-System.
+     * @return the growth matrix or {@code null} if the L-System is not deterministic and context-free.
+     */
+    static <S> GrowthMatrix<S> of(Collection<Rule<S>> rules, List<Rule.Successor<S>> axiom) {
+        Map<S, Integer> index = new LinkedHashMap<>();
+        for (Rule.Successor<S> s : axiom) index.putIfAbsent(s.symbol, index.size());
+        for (Rule<S> rule : rules) {
+            if (!rule.branches.isEmpty() && rule.branches.get(0).condition != null) return null;
+            index.putIfAbsent(rule.symbol, index.size());
+            if (!rule.branches.isEmpty()) {
+                for (Rule.Successor<S> s : rule.branches.get(0).successors) index.putIfAbsent(s.symbol, index.size());
+            }
+        }
+
+        int k = index.size();
+        long[][] matrix = new long[k][k];
+        for (int i = 0; i < k; i++) matrix[i][i] = 1L;
+        for (Rule<S> rule : rules) {
+            if (rule.branches.isEmpty()) continue;
+            long[] row = matrix[index.get(rule.symbol)];
+            row[index.get(rule.symbol)] = 0L;
+            for (Rule.Successor<S> s : rule.branches.get(0).successors) row[index.get(s.symbol)]++;
+        }
+
+        long[] v = new long[k];
+        for (Rule.Successor<S> s : axiom) v[index.get(s.symbol)]++;
+        return new GrowthMatrix<>(new ArrayList<>(index.keySet()), matrix, v);
+    }
+
+    /**
+     * Computes number of symbols after given number of derivations.
+     * @param derivations number of derivations.
+     * @return the number of symbols.
+     */
+    BigInteger length(int derivations) {
+        BigInteger length = BigInteger.ZERO;
+        for (BigInteger c : parikh(derivations)) length = length.add(c);
+        return length;
+    }
+
+    /**
+     * Computes number of occurrences of each symbol after given number of derivations.
+     * @param derivations number of derivations.
+     * @return a map from every symbol of the alphabet to its number of occurrences.
+     */
+    Map<S, BigInteger> counts(int derivations) {
+        BigInteger[] v = parikh(derivations);
+        Map<S, BigInteger> counts = new LinkedHashMap<>();
+        for (int i = 0; i < v.length; i++) counts.put(alphabet.get(i), v[i]);
+        return counts;
+    }
+
+    private BigInteger[] parikh(int derivations) {
+        try {
+            long[] v = axiom.clone();
+            long[][] base = matrix;
+            for (int n = derivations; n > 0; n >>>= 1) {
+                if ((n & 1) != 0) v = multiply(v, base);
+                if (n > 1) base = multiply(base, base);
+            }
+            return toBig(v);
+        } catch (ArithmeticException e) {
+            // does not fit into long
+            BigInteger[] v = toBig(axiom);
+            BigInteger[][] base = Arrays.stream(matrix).map(GrowthMatrix::toBig).toArray(BigInteger[][]::new);
+            for (int n = derivations; n > 0; n >>>= 1) {
+                if ((n & 1) != 0) v = multiply(v, base);
+                if (n > 1) base = multiply(base, base);
+            }
+            return v;
+        }
+    }
+
+    private static long[] multiply(long[] v, long[][] m) {
+        long[] r = new long[v.length];
+        for (int i = 0; i < v.length; i++) {
+            if (v[i] == 0L) continue;
+            for (int j = 0; j < r.length; j++) {
+                if (m[i][j] != 0L) r[j] = Math.addExact(r[j], Math.multiplyExact(v[i], m[i][j]));
+            }
+        }
+        return r;
+    }
+
+    private static long[][] multiply(long[][] a, long[][] b) {
+        long[][] r = new long[a.length][];
+        for (int i = 0; i < a.length; i++) r[i] = multiply(a[i], b);
+        return r;
+    }
+
+    private static BigInteger[] multiply(BigInteger[] v, BigInteger[][] m) {
+        BigInteger[] r = new BigInteger[v.length];
+        Arrays.fill(r, BigInteger.ZERO);
+        for (int i = 0; i < v.length; i++) {
+            if (v[i].signum() == 0) continue;
+            for (int j = 0; j < r.length; j++) {
+                if (m[i][j].signum() != 0) r[j] = r[j].add(v[i].multiply(m[i][j]));
+            }
+        }
+        return r;
+    }
+
+    private static BigInteger[][] multiply(BigInteger[][] a, BigInteger[][] b) {
+        BigInteger[][] r = new BigInteger[a.length][];
+        for (int i = 0; i < a.length; i++) r[i] = multiply(a[i], b);
+        return r;
+    }
+
+    private static BigInteger[] toBig(long[] v) {
+        return Arrays.stream(v).mapToObj(BigInteger::valueOf).toArray(BigInteger[]::new);
+    }
+}
@@ -0,0 +1,87 @@
+package org.twowls.linda.engine;
+
+import java.util.Arrays;
+
+/**
+ * <p>Maps {@code int} symbols to indices of their rules. Symbols spanning a reasonably small range
+ * are looked up in a dense array indexed by symbol, otherwise a collision-free (perfect)
+ * multiplicative hash table is built.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class IntDispatch {
+
+    /* Maximum number of table slots per symbol in dense mode */
+    private static final int DENSITY = 8;
+    private static final int MIN_DENSE_SPAN = 1024;
+    private static final int MAX_DENSE_SPAN = 1 << 20;
+    private static final int ATTEMPTS = 64;
+
+    private final int base;
+    private final int[] dense;
+    private final int[] keys;
+    private final int[] values;
+    private final int multiplier;
+    private final int shift;
+
+    /**
+     * @param symbols distinct symbols, a symbol is mapped to its position in this array.
+     */
+    IntDispatch(int[] symbols) {
+        int min = Arrays.stream(symbols).min().orElse(0), max = Arrays.stream(symbols).max().orElse(-1);
+        long span = (long) max - min + 1;
+        if (span <= Math.min(MAX_DENSE_SPAN, Math.max(MIN_DENSE_SPAN, (long) DENSITY * symbols.length))) {
+            this.base = min;
+            this.dense = new int[(int) Math.max(span, 0)];
+            Arrays.fill(dense, -1);
+            for (int i = 0; i < symbols.length; i++) dense[symbols[i] - min] = i;
+            this.keys = this.values = null;
+            this.multiplier = this.shift = 0;
+            return;
+        }
+
+        this.base = 0;
+        this.dense = null;
+        for (int bits = 32 - Integer.numberOfLeadingZeros(2 * symbols.length - 1); ; bits++) {
+            int[] keys = new int[1 << bits], values = new int[1 << bits];
+            long seed = 0x9E3779B97F4A7C15L;
+            for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                int multiplier = (int) (seed >>> 32) | 1;
+                if (fill(symbols, keys, values, multiplier, 32 - bits)) {
+                    this.keys = keys;
+                    this.values = values;
+                    this.multiplier = multiplier;
+                    this.shift = 32 - bits;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up the index of a symbol.
+     * @param symbol the symbol.
+     * @return the index of the symbol or {@code -1} if the symbol is not mapped.
+     */
+    int lookup(int symbol) {
+        if (dense != null) {
+            int i = symbol - base;
+            return (i >= 0 && i < dense.length ? dense[i] : -1);
+        }
+        int slot = (symbol * multiplier) >>> shift;
+        return (keys[slot] == symbol ? values[slot] : -1);
+    }
+
+    private static boolean fill(int[] symbols, int[] keys, int[] values, int multiplier, int shift) {
+        Arrays.fill(values, -1);
+        for (int i = 0; i < symbols.length; i++) {
+            int slot = (symbols[i] * multiplier) >>> shift;
+            if (values[slot] >= 0) return false;
+            keys[slot] = symbols[i];
+            values[slot] = i;
+        }
+        return true;
+    }
+}
@@ -1,5 +1,6 @@
 package org.twowls.linda.engine;
 
+import java.nio.file.Path;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 
@@ -91,6 +92,13 @@ public interface IntLSystem extends LSystem<Integer> {
             return this;
         }
 
+        @Override
+        Builder brackets(Integer open, Integer close);
+
+        default Builder brackets(int open, int close) {
+            return brackets(Integer.valueOf(open), Integer.valueOf(close));
+        }
+
         @Override
         Builder not();
 
@@ -125,6 +133,21 @@ public interface IntLSystem extends LSystem<Integer> {
             return this;
         }
 
+        @Override
+        Builder mode(Mode mode);
+
+        @Override
+        Builder cache(int generations, long bytes);
+
+        @Override
+        Builder offHeap(long threshold, Path directory);
+
+        @Override
+        Builder seed(long seed);
+
+        @Override
+        Builder listener(Listener<Integer> listener);
+
         @Override
         IntLSystem build();
     }
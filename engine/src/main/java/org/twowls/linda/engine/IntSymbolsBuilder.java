@@ -0,0 +1,27 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>{@link IntLSystem.Builder} implementation.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class IntSymbolsBuilder extends AbstractBuilder<Integer, IntLSystem.Builder> implements IntLSystem.Builder {
+
+    @Override
+    protected IntLSystem.Builder self() {
+        return this;
+    }
+
+    @Override
+    public IntLSystem.Builder rule(int symbol) {
+        return rule(Integer.valueOf(symbol));
+    }
+
+    @Override
+    public IntLSystem build() {
+        validate();
+        return new IntSymbolsLSystem(optimizedRules(), axiomSymbols(), rewriteMode(), generationCache(Word::bytes),
+                storage(), listener(), contextIndex(Alphabet.INTEGERS), seed());
+    }
+}
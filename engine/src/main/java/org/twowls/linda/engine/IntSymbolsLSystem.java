@@ -0,0 +1,20 @@
+package org.twowls.linda.engine;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link IntLSystem} implementation based on {@link ArrayIntLSystem}.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class IntSymbolsLSystem extends ArrayIntLSystem<Integer> implements IntLSystem {
+
+    IntSymbolsLSystem(Collection<Rule<Integer>> rules, List<Rule.Successor<Integer>> axiom, Mode mode,
+                      GenerationCache<Word> cache, Storage storage, Listener<Integer> listener,
+                      Supplier<ContextIndex<Integer>> contexts, long seed) {
+        super(Alphabet.INTEGERS, rules, axiom, mode, cache, storage, listener, contexts, seed);
+    }
+}
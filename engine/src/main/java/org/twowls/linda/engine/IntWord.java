@@ -0,0 +1,210 @@
+package org.twowls.linda.engine;
+
+import java.util.Arrays;
+
+/**
+ * <p>Growable storage of a single generation of {@code int} symbols. Parameters are kept in
+ * parallel primitive lanes: parameters of symbol {@code i} occupy positions from {@code offsets[i]}
+ * (inclusive) to {@code offsets[i + 1]} (exclusive) of the {@code values} and {@code kinds} pools.
+ * The lanes are only allocated once a parametrized symbol is added.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class IntWord implements Word, Interpreter.Params {
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final int DEFAULT_CAPACITY = 16;
+    static final String TOO_LARGE = "Generation is too large";
+
+    int[] symbols;
+    int[] offsets;
+    double[] values;
+    byte[] kinds;
+    int size;
+    int count;
+
+    IntWord() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntWord(int capacity) {
+        symbols = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Removes all symbols keeping allocated storage.
+     */
+    void clear() {
+        size = 0;
+        count = 0;
+        if (offsets != null) offsets[0] = 0;
+    }
+
+    /**
+     * Appends a symbol without parameters, parameters may then be added by {@link #param(byte, double)}.
+     * @param symbol the symbol to append.
+     */
+    void add(int symbol) {
+        if (size == symbols.length) grow(size + 1);
+        symbols[size++] = symbol;
+        if (offsets != null) offsets[size] = count;
+    }
+
+    /**
+     * Appends a parameter to the last symbol.
+     * @param kind the kind of value, one of {@link Value} kind constants.
+     * @param value the value.
+     */
+    void param(byte kind, double value) {
+        if (offsets == null) offsets = new int[symbols.length + 1];
+        if (values == null || count == values.length) growValues(count + 1);
+        values[count] = value;
+        kinds[count] = kind;
+        offsets[size] = ++count;
+    }
+
+    /**
+     * Appends a symbol along with its parameters from another storage.
+     * @param src the source storage.
+     * @param index position of the symbol within the source storage.
+     */
+    void copy(IntWord src, int index) {
+        add(src.symbols[index]);
+        if (src.offsets != null) {
+            for (int i = src.offsets[index], end = src.offsets[index + 1]; i < end; i++) {
+                param(src.kinds[i], src.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Appends a sequence of symbols having no parameters.
+     * @param values the symbols to append.
+     */
+    void append(int[] values) {
+        ensureCapacity(size + values.length);
+        System.arraycopy(values, 0, symbols, size, values.length);
+        if (offsets != null) Arrays.fill(offsets, size + 1, size + values.length + 1, count);
+        size += values.length;
+    }
+
+    /**
+     * Appends a range of symbols along with their parameters from another storage.
+     * @param src the source storage.
+     * @param from the first symbol position, inclusive.
+     * @param to the last symbol position, exclusive.
+     */
+    void append(IntWord src, int from, int to) {
+        int n = to - from;
+        ensureCapacity(size + n);
+        System.arraycopy(src.symbols, from, symbols, size, n);
+        if (src.offsets != null) {
+            int first = src.offsets[from], m = src.offsets[to] - first;
+            if (offsets == null) offsets = new int[symbols.length + 1];
+            if (m > 0) {
+                ensureValueCapacity(count + m);
+                System.arraycopy(src.values, first, values, count, m);
+                System.arraycopy(src.kinds, first, kinds, count, m);
+            }
+            int delta = count - first;
+            for (int i = 1; i <= n; i++) offsets[size + i] = src.offsets[from + i] + delta;
+            count += m;
+        } else if (offsets != null) {
+            Arrays.fill(offsets, size + 1, size + n + 1, count);
+        }
+        size += n;
+    }
+
+    /**
+     * @param index the symbol position.
+     * @return number of parameters of the symbol.
+     */
+    int params(int index) {
+        return (offsets != null ? offsets[index + 1] - offsets[index] : 0);
+    }
+
+    @Override
+    public int count(int index) {
+        return params(index);
+    }
+
+    @Override
+    public boolean booleanVal(int index, int k) {
+        return (values[offsets[index] + k] != 0.0);
+    }
+
+    @Override
+    public double doubleVal(int index, int k) {
+        return values[offsets[index] + k];
+    }
+
+    @Override
+    public int intVal(int index, int k) {
+        return (int) values[offsets[index] + k];
+    }
+
+    /**
+     * Sets the number of symbols and parameters so that they can be written directly into lanes.
+     * Storage must be {@link #clear() cleared} beforehand. Offsets must be written for every symbol
+     * whenever {@link #offsets} is not {@code null}.
+     * @param size the new number of symbols.
+     * @param count the new number of parameters.
+     */
+    void resize(long size, long count) {
+        if (size > MAX_CAPACITY || count > MAX_CAPACITY) throw new OutOfMemoryError("Generation is too large");
+        ensureCapacity((int) size);
+        if (count > 0) {
+            if (offsets == null) offsets = new int[symbols.length + 1];
+            ensureValueCapacity((int) count);
+        }
+        this.size = (int) size;
+        this.count = (int) count;
+        if (offsets != null) offsets[this.size] = this.count;
+    }
+
+    @Override
+    public long bytes() {
+        long bytes = 48L + 4L * symbols.length;
+        if (offsets != null) bytes += 4L * offsets.length;
+        if (values != null) bytes += 9L * values.length;
+        return bytes;
+    }
+
+    /**
+     * Ensures that storage is able to hold at least {@code capacity} symbols.
+     * @param capacity the required capacity.
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > symbols.length) grow(capacity);
+    }
+
+    private void ensureValueCapacity(int capacity) {
+        if (values == null || capacity > values.length) growValues(capacity);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = newCapacity(symbols.length, minCapacity, TOO_LARGE);
+        symbols = Arrays.copyOf(symbols, capacity);
+        if (offsets != null) offsets = Arrays.copyOf(offsets, capacity + 1);
+    }
+
+    private void growValues(int minCapacity) {
+        int capacity = newCapacity(values != null ? values.length : 0, Math.max(minCapacity, DEFAULT_CAPACITY), TOO_LARGE);
+        values = (values != null ? Arrays.copyOf(values, capacity) : new double[capacity]);
+        kinds = (kinds != null ? Arrays.copyOf(kinds, capacity) : new byte[capacity]);
+    }
+
+    /**
+     * Computes new capacity of a growing array.
+     * @param current the current capacity.
+     * @param minCapacity the required capacity.
+     * @param error the message of the error thrown when the array cannot grow.
+     * @return the new capacity.
+     * @throws OutOfMemoryError if the required capacity exceeds the maximum array size.
+     */
+    static int newCapacity(int current, int minCapacity, String error) {
+        if (minCapacity < 0 || minCapacity > MAX_CAPACITY) throw new OutOfMemoryError(error);
+        return (int) Math.min(MAX_CAPACITY, Math.max(minCapacity, current + (long) (current >> 1)));
+    }
+}
@@ -38,6 +38,29 @@ public interface Interpreter<S, R> {
         // default implementation does not take any action
     }
 
+    /**
+     * <p>Tells whether this interpreter is able to interpret whole chunks of symbols at once, if so engines
+     * of {@code int} symbols call {@link #interpretBatch} instead of {@link #interpret}.
+     * Other engines keep calling {@link #interpret} for each symbol.</p>
+     * @return {@code true} if {@link #interpretBatch} is implemented, otherwise {@code false}.
+     */
+    default boolean isBatching() {
+        return false;
+    }
+
+    /**
+     * <p>Invoked by rewriting engine when a chunk of symbols is ready and needs to be interpreted.
+     * Arrays are owned by the engine and only valid during the call.</p>
+     * @param symbols an array containing symbols to be interpreted.
+     * @param from the position of the first symbol in {@code symbols}, inclusive.
+     * @param to the position of the last symbol in {@code symbols}, exclusive.
+     * @param params parameters of the symbols, addressed by the same positions.
+     * @throws UnsupportedOperationException if this interpreter is not {@link #isBatching() batching}.
+     */
+    default void interpretBatch(int[] symbols, int from, int to, Params params) {
+        throw new UnsupportedOperationException("Batch interpretation is not supported");
+    }
+
     /**
      * @return the result of interpretation, if any.
      */
@@ -61,7 +84,7 @@ public interface Interpreter<S, R> {
 
             @Override
             public void before(LSystem.State<S> state) {
-                self.before(state); self.before(state);
+                self.before(state); other.before(state);
             }
 
             @Override
@@ -69,10 +92,53 @@ public interface Interpreter<S, R> {
                 self.after(state); other.after(state);
             }
 
+            @Override
+            public boolean isBatching() {
+                return self.isBatching() && other.isBatching();
+            }
+
+            @Override
+            public void interpretBatch(int[] symbols, int from, int to, Params params) {
+                self.interpretBatch(symbols, from, to, params); other.interpretBatch(symbols, from, to, params);
+            }
+
             @Override
             public R getResult() {
                 return self.getResult();
             }
         };
     }
+
+    /**
+     * Read-only view of parameters of a chunk of symbols passed to {@link #interpretBatch}.
+     */
+    interface Params {
+
+        /**
+         * @param index position of a symbol.
+         * @return number of parameters of the symbol.
+         */
+        int count(int index);
+
+        /**
+         * @param index position of a symbol.
+         * @param k index of a parameter, must be in range {@code 0..count(index) - 1}.
+         * @return the parameter value as a {@code boolean}.
+         */
+        boolean booleanVal(int index, int k);
+
+        /**
+         * @param index position of a symbol.
+         * @param k index of a parameter, must be in range {@code 0..count(index) - 1}.
+         * @return the parameter value as a {@code double}.
+         */
+        double doubleVal(int index, int k);
+
+        /**
+         * @param index position of a symbol.
+         * @param k index of a parameter, must be in range {@code 0..count(index) - 1}.
+         * @return the parameter value as an {@code int}.
+         */
+        int intVal(int index, int k);
+    }
 }
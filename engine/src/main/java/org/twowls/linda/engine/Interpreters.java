@@ -1,7 +1,11 @@
 package org.twowls.linda.engine;
 
 import java.io.PrintStream;
-import java.util.concurrent.atomic.AtomicLong;
+import java.nio.FloatBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import static java.util.Objects.requireNonNull;
 
 /**
  * <p>Provides utility methods that create simple interpreter instances.</p>
@@ -17,21 +21,31 @@ public final class Interpreters {
      */
     public static <S> Interpreter<S, Long> counting() {
         return new Interpreter<>() {
-            AtomicLong cnt;
+            long cnt;
 
             @Override
             public void before(LSystem.State state) {
-                cnt.set(0L);
+                cnt = 0L;
             }
 
             @Override
             public void interpret(LSystem.State state) {
-                cnt.incrementAndGet();
+                cnt++;
+            }
+
+            @Override
+            public boolean isBatching() {
+                return true;
+            }
+
+            @Override
+            public void interpretBatch(int[] symbols, int from, int to, Params params) {
+                cnt += to - from;
             }
 
             @Override
             public Long getResult() {
-                return cnt.longValue();
+                return cnt;
             }
         };
     }
@@ -45,7 +59,8 @@ public final class Interpreters {
     }
 
     /**
-     * <p>Creates a simple interpreter that joins incoming symbols into a string.</p>
+     * <p>Creates a simple interpreter that joins incoming symbols into a string.
+     * {@code Integer} symbols are treated as Unicode code points, those out of range as decimal numbers.</p>
      * @param separator a string separating individual symbols.
      * @return an {@code Interpreter<String>} instance.
      */
@@ -61,7 +76,22 @@ public final class Interpreters {
             @Override
             public void interpret(LSystem.State state) {
                 if (separator != null && builder.length() > 0) builder.append(separator);
-                builder.append(state.sym());
+                append(builder, state.sym());
+            }
+
+            @Override
+            public boolean isBatching() {
+                return true;
+            }
+
+            @Override
+            public void interpretBatch(int[] symbols, int from, int to, Params params) {
+                if (separator == null) {
+                    for (int i = from; i < to; i++) append(builder, symbols[i]);
+                } else for (int i = from; i < to; i++) {
+                    if (builder.length() > 0) builder.append(separator);
+                    append(builder, symbols[i]);
+                }
             }
 
             @Override
@@ -80,14 +110,30 @@ public final class Interpreters {
     }
 
     /**
-     * <p>Creates a simple interpreter that sends incoming symbols to a given stream.</p>
+     * <p>Creates a simple interpreter that sends incoming symbols to a given stream.
+     * {@code Integer} symbols are treated as Unicode code points, those out of range as decimal numbers.</p>
      * @return an {@code Interpreter} instance.
      */
     public static <S> Interpreter<S, Void> printing(PrintStream printStream) {
         return new Interpreter<>() {
+            final StringBuilder buffer = new StringBuilder();
+
             @Override
             public void interpret(LSystem.State state) {
-                printStream.print(state.sym());
+                buffer.setLength(0);
+                printStream.append(append(buffer, state.sym()));
+            }
+
+            @Override
+            public boolean isBatching() {
+                return true;
+            }
+
+            @Override
+            public void interpretBatch(int[] symbols, int from, int to, Params params) {
+                buffer.setLength(0);
+                for (int i = from; i < to; i++) append(buffer, symbols[i]);
+                printStream.append(buffer);
             }
 
             @Override
@@ -97,6 +143,91 @@ public final class Interpreters {
         };
     }
 
+    /**
+     * <p>Creates a two-dimensional turtle graphics interpreter producing line segments. Symbols
+     * {@code F} and {@code f} move the turtle forward with and without drawing, {@code +} and {@code -}
+     * turn it left and right, {@code [} and {@code ]} save and restore its state. The first parameter
+     * of a symbol overrides the default step or angle.</p>
+     * @param step the default step length.
+     * @param angle the default turn angle in degrees.
+     * @return an {@code Interpreter} producing four values {@code x0, y0, x1, y1} per segment.
+     */
+    public static <S> Interpreter<S, FloatBuffer> turtle(double step, double angle) {
+        return new VertexTurtle<>(step, angle);
+    }
+
+    /**
+     * <p>Creates a turtle graphics interpreter computing the bounding box of the drawing,
+     * see {@link #turtle(double, double)}.</p>
+     * @param step the default step length.
+     * @param angle the default turn angle in degrees.
+     * @return an {@code Interpreter} producing the bounding box as {@code minX, minY, maxX, maxY}.
+     */
+    public static <S> Interpreter<S, double[]> bounds(double step, double angle) {
+        return new BoundsTurtle<>(step, angle);
+    }
+
+    /**
+     * <p>Creates a turtle graphics interpreter writing the drawing as an SVG document while rewriting,
+     * see {@link #turtle(double, double)}. The whole drawing is never kept in memory, the viewport is
+     * set up from a bounding box which may be computed in advance by {@link #bounds(double, double)}.</p>
+     * @param step the default step length.
+     * @param angle the default turn angle in degrees.
+     * @param bounds the bounding box of the drawing as {@code minX, minY, maxX, maxY}.
+     * @param channel the channel to write the document to, must not be {@code null}.
+     * @return an {@code Interpreter} producing the number of written segments.
+     */
+    public static <S> Interpreter<S, Long> svg(double step, double angle, double[] bounds, WritableByteChannel channel) {
+        requireNonNull(channel);
+        if (bounds.length != 4) throw new IllegalArgumentException("Bounding box must consist of four values");
+        return new SvgTurtle<>(step, angle, bounds, channel);
+    }
+
+    /**
+     * <p>Creates a three-dimensional turtle graphics interpreter computing the size of a tube mesh,
+     * see {@link MeshTurtle} for understood symbols.</p>
+     * @param options the mesh settings, must not be {@code null}.
+     * @return an {@code Interpreter} producing the number of vertices and the number of triangles.
+     */
+    public static <S> Interpreter<S, long[]> meshSize(MeshOptions options) {
+        return new MeshSizeTurtle<>(requireNonNull(options));
+    }
+
+    /**
+     * <p>Creates a three-dimensional turtle graphics interpreter writing a tube mesh as binary STL
+     * while rewriting. The number of triangles may be computed in advance by {@link #meshSize(MeshOptions)}.</p>
+     * @param options the mesh settings, must not be {@code null}.
+     * @param triangles the number of triangles in the mesh.
+     * @param channel the channel to write the mesh to, must not be {@code null}.
+     * @return an {@code Interpreter} producing the number of written triangles.
+     */
+    public static <S> Interpreter<S, Long> stl(MeshOptions options, long triangles, WritableByteChannel channel) {
+        return new StlTurtle<>(requireNonNull(options), triangles, requireNonNull(channel));
+    }
+
+    /**
+     * <p>Creates a three-dimensional turtle graphics interpreter writing a tube mesh as binary glTF
+     * while rewriting. Vertices and indices are written to separate regions of the channel, so their
+     * numbers must be known in advance, see {@link #meshSize(MeshOptions)}.</p>
+     * @param options the mesh settings, must not be {@code null}.
+     * @param size the number of vertices and the number of triangles in the mesh.
+     * @param channel the channel to write the mesh to, must not be {@code null}.
+     * @return an {@code Interpreter} producing the number of written triangles.
+     */
+    public static <S> Interpreter<S, Long> glb(MeshOptions options, long[] size, SeekableByteChannel channel) {
+        if (size.length != 2) throw new IllegalArgumentException("Mesh size must consist of two values");
+        return new GlbTurtle<>(requireNonNull(options), size[0], size[1], requireNonNull(channel));
+    }
+
+    private static StringBuilder append(StringBuilder builder, Object symbol) {
+        return (symbol instanceof Integer ? append(builder, ((Integer) symbol).intValue()) : builder.append(symbol));
+    }
+
+    /* Appends a valid code point as a character and any other int as a decimal number */
+    private static StringBuilder append(StringBuilder builder, int symbol) {
+        return (Character.isValidCodePoint(symbol) ? builder.appendCodePoint(symbol) : builder.append(symbol));
+    }
+
     /* Prevents instantiation */
     private Interpreters() {}
 }
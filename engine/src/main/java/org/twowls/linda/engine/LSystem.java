@@ -1,7 +1,14 @@
 package org.twowls.linda.engine;
 
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * Lindenmayer system (L-System) API.
  *
@@ -21,6 +28,101 @@ public interface LSystem<S> {
      */
     <R> R rewrite(int derivations, Interpreter<S, R> interpreter);
 
+    /**
+     * Reduces the L-System rewritten specified number of derivations. Deterministic context-free
+     * L-Systems of parameterless symbols are not rewritten at all: results of symbols expanded to each
+     * depth are computed once and combined. In {@link Mode#PARALLEL} mode chunks of a generation are
+     * reduced simultaneously.
+     * @param derivations number of derivations, must be zero or positive.
+     * @param reducer the reducer, must not be {@code null}.
+     * @param <R> the type of {@code reducer} result.
+     * @return the result of reduction.
+     */
+    <R> R reduce(int derivations, Reducer<S, R> reducer);
+
+    /**
+     * Computes the number of symbols the L-System consists of after specified number of derivations
+     * without actually rewriting it. Only supported by deterministic context-free L-Systems, i.e.
+     * those having no conditional branches in their rules.
+     * @param derivations number of derivations, must be zero or positive.
+     * @return the number of symbols.
+     * @throws UnsupportedOperationException if the L-System is not deterministic and context-free.
+     */
+    BigInteger length(int derivations);
+
+    /**
+     * Computes how many times each symbol occurs in the L-System after specified number of derivations
+     * without actually rewriting it. Only supported by deterministic context-free L-Systems, i.e.
+     * those having no conditional branches in their rules.
+     * @param derivations number of derivations, must be zero or positive.
+     * @return a map from every symbol that can occur in the L-System to its number of occurrences.
+     * @throws UnsupportedOperationException if the L-System is not deterministic and context-free.
+     */
+    Map<S, BigInteger> counts(int derivations);
+
+    /**
+     * Finds the symbol at specified position of the L-System after specified number of derivations
+     * without rewriting symbols preceding it, which takes time proportional to the number of derivations.
+     * Only supported by deterministic context-free L-Systems of parameterless symbols.
+     * @param derivations number of derivations, must be zero or positive.
+     * @param index position of the symbol, must be in range {@code 0..length(derivations) - 1}.
+     * @return the symbol.
+     * @throws UnsupportedOperationException if the L-System is not deterministic, context-free and parameterless.
+     * @throws IndexOutOfBoundsException if the position is out of range.
+     */
+    S symbolAt(int derivations, long index);
+
+    /**
+     * Interprets a range of symbols of the L-System after specified number of derivations without
+     * rewriting symbols outside of the range. Symbols are passed to the interpreter along with their
+     * positions within the whole generation. Only supported by deterministic context-free L-Systems
+     * of parameterless symbols.
+     * @param derivations number of derivations, must be zero or positive.
+     * @param from position of the first symbol, inclusive.
+     * @param to position of the last symbol, exclusive, must not exceed {@code length(derivations)}.
+     * @param interpreter the interpreter, must not be {@code null}.
+     * @param <R> the type of interpretation result.
+     * @return the result of the interpreter.
+     * @throws UnsupportedOperationException if the L-System is not deterministic, context-free and parameterless.
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    <R> R slice(int derivations, long from, long to, Interpreter<S, R> interpreter);
+
+    /**
+     * @return statistics of the cache of derived generations.
+     * @see Builder#cache(int, long)
+     */
+    CacheStats cacheStats();
+
+    /**
+     * Defines the way an L-System gets rewritten. All modes produce exactly the same result.
+     */
+    enum Mode {
+
+        /**
+         * Every generation is derived completely from the previous one before the
+         * final one is passed to the interpreter.
+         */
+        ITERATIVE,
+
+        /**
+         * The axiom is expanded depth-first and symbols of the final generation are passed
+         * to the interpreter as soon as they are produced, so no generation is ever kept in
+         * memory. Only applicable to context-free L-Systems, an L-System having rules that
+         * depend on context ({@link Builder#precedes}, {@link Builder#follows}) is rewritten
+         * in {@link #ITERATIVE} mode instead.
+         */
+        STREAMING,
+
+        /**
+         * Like {@link #ITERATIVE} but each generation is split into chunks rewritten
+         * simultaneously by the common {@link java.util.concurrent.ForkJoinPool}.
+         * Functions passed to {@link Builder#when} and {@link Builder#fun} may be invoked
+         * from different threads and should not have side effects.
+         */
+        PARALLEL
+    }
+
     /**
      * Provides methods allowing building of an <i>L-System</i> in the DSL fashion.
      * @param <S> the type of a single symbol.
@@ -120,6 +222,16 @@ public interface LSystem<S> {
          */
         Builder<S> skipping(S symbol);
 
+        /**
+         * Declares symbols delimiting branches, so that context matching defined by {@link #precedes}
+         * or {@link #follows} follows the branching structure: branches are jumped over and a symbol
+         * starting a branch follows the symbol preceding the branch.
+         * @param open the symbol starting a branch, must not be {@code null}.
+         * @param close the symbol ending a branch, must not be {@code null}.
+         * @return the current {@code Builder} instance.
+         */
+        Builder<S> brackets(S open, S close);
+
         /**
          *
          * @return the current {@code Builder} instance.
@@ -152,15 +264,238 @@ public interface LSystem<S> {
          */
         Builder<S> out(S symbol);
 
+        /**
+         * Selects the way the L-System is rewritten, {@link Mode#ITERATIVE} is used by default.
+         * @param mode the rewrite mode, must not be {@code null}.
+         * @return the current {@code Builder} instance.
+         */
+        Builder<S> mode(Mode mode);
+
+        /**
+         * Enables caching of derived generations, so that rewriting continues from the deepest
+         * cached generation instead of the axiom. Generations exceeding the limits are only kept
+         * softly reachable. Caching is disabled by default and has no effect in {@link Mode#STREAMING}
+         * mode. Functions passed to {@link #when} and {@link #fun} must not depend on external
+         * state when caching is enabled.
+         * @param generations maximum number of cached generations, zero disables caching.
+         * @param bytes maximum estimated size of cached generations in bytes.
+         * @return the current {@code Builder} instance.
+         */
+        Builder<S> cache(int generations, long bytes);
+
+        /**
+         * Keeps generations larger than a threshold in memory-mapped temporary files instead of the heap,
+         * so their size is only limited by the disk. Applies to generations of context-free L-Systems of
+         * parameterless symbols using at most 256 distinct symbols rewritten in {@link Mode#ITERATIVE}
+         * mode, other ones are kept on heap ({@link Mode#STREAMING} mode keeps no generations at all).
+         * The size of the next generation is computed exactly for deterministic L-Systems and bounded
+         * by the longest successor otherwise. Generations kept off-heap are never cached, their files
+         * are deleted once no longer needed.
+         * @param threshold the size in bytes above which a generation is kept off-heap.
+         * @param directory the directory to create files in, {@code null} keeps all generations on heap.
+         * @return the current {@code Builder} instance.
+         */
+        Builder<S> offHeap(long threshold, Path directory);
+
+        /**
+         * Sets the seed of random numbers used by {@link #probably} branches. A random number is derived
+         * from the seed, the generation and the position of a symbol only, so the same seed yields the same
+         * words regardless of the rewrite mode and the number of processors.
+         * @param seed the seed.
+         * @return the current {@code Builder} instance.
+         */
+        Builder<S> seed(long seed);
+
+        /**
+         * Registers a listener receiving metrics of each derivation computed while rewriting.
+         * Metrics are not collected unless a listener is registered.
+         * @param listener the listener, {@code null} removes a registered listener.
+         * @return the current {@code Builder} instance.
+         */
+        Builder<S> listener(Listener<S> listener);
+
+        /**
+         * Analyses the rules supplied so far the same way {@link #build()} does before building
+         * the L-System.
+         * @return the analysis report.
+         * @throws IllegalStateException if the axiom is not defined or the last rule is incomplete.
+         */
+        Analysis<S> analyze();
+
         /**
          * Builds the L-System based on data supplied by invoking other {@code Builder} methods.
+         * Rules are optimized first, see {@link Analysis}.
          * @return the built L-System
          */
         LSystem<S> build();
     }
 
     /**
-     * Holds state of an executing rewriting process.
+     * Statistics of the cache of derived generations.
+     */
+    interface CacheStats {
+
+        /**
+         * @return number of rewrites that continued from a cached generation.
+         */
+        long hits();
+
+        /**
+         * @return number of rewrites that started from the axiom.
+         */
+        long misses();
+
+        /**
+         * @return number of currently cached generations, not counting spilled ones.
+         */
+        int generations();
+
+        /**
+         * @return estimated size of currently cached generations in bytes, not counting spilled ones.
+         */
+        long bytes();
+    }
+
+    /**
+     * Report of the static analysis of rules done when an L-System is built, see {@link Builder#analyze()}.
+     * Rules never applied are stripped, constant rules are folded and symbols never occurring in
+     * generations are removed from {@link Builder#skipping skipped} symbols, so none of them costs
+     * anything while rewriting.
+     */
+    interface Analysis<S> {
+
+        /**
+         * @return symbols occurring in generations that have no rule and are copied unchanged,
+         *  including those whose rules were folded away.
+         */
+        Set<S> copied();
+
+        /**
+         * @return symbols having rules that never occur in any generation, their rules are stripped.
+         */
+        Set<S> unreachable();
+
+        /**
+         * @return symbols whose rules produce the same parameterless successors in every branch. Such
+         *  a rule is folded into a single unconditional branch if its last branch has no condition,
+         *  and stripped if it produces just the symbol itself.
+         */
+        Set<S> constant();
+
+        /**
+         * @return symbols only referred to as skipped by context conditions, they are removed from
+         *  skipped symbols.
+         */
+        Set<S> skippedOnly();
+    }
+
+    /**
+     * Receives metrics of derivations computed while rewriting, see {@link Builder#listener}.
+     */
+    @FunctionalInterface
+    interface Listener<S> {
+
+        /**
+         * Invoked after a generation has been derived. Generations taken from the cache are not
+         * reported. In {@link Mode#STREAMING} mode generations are derived simultaneously, so a single
+         * report covers all of them.
+         * @param metrics metrics of the derivation, only valid during this call.
+         */
+        void derived(Metrics<S> metrics);
+
+        /**
+         * Creates a listener committing metrics as JDK Flight Recorder events {@code org.twowls.linda.Derivation}
+         * and {@code org.twowls.linda.RuleHits}, provided that a recording having them enabled is running.
+         * Requires JDK 11 or later with the {@code jdk.jfr} module resolved at startup.
+         * @return a listener instance.
+         * @throws UnsupportedOperationException if the {@code jdk.jfr} module is not available.
+         */
+        static <S> Listener<S> flightRecorder() {
+            if (!ModuleLayer.boot().findModule("jdk.jfr").isPresent())
+                throw new UnsupportedOperationException("Flight Recorder events require the jdk.jfr module (JDK 11 or later)");
+            return new FlightRecorderListener<>();
+        }
+    }
+
+    /**
+     * Metrics of a single derivation. Rules and their branches are numbered in order of definition.
+     */
+    interface Metrics<S> {
+
+        /**
+         * @return number of the derived generation, i.e. number of derivations applied to the axiom.
+         */
+        int generation();
+
+        /**
+         * @return number of symbols in the derived generation.
+         */
+        long symbols();
+
+        /**
+         * @return wall time spent on the derivation in nanoseconds.
+         */
+        long nanos();
+
+        /**
+         * @return number of bytes allocated by the rewriting thread during the derivation,
+         *  or {@code -1} if not supported by the JVM.
+         */
+        long allocatedBytes();
+
+        /**
+         * @return number of rules.
+         */
+        int rules();
+
+        /**
+         * @param rule the rule number.
+         * @return the symbol rewritten by the rule.
+         */
+        S symbol(int rule);
+
+        /**
+         * @param rule the rule number.
+         * @return number of branches of the rule.
+         */
+        int branches(int rule);
+
+        /**
+         * @param rule the rule number.
+         * @param branch the branch number.
+         * @return a description of the branch condition, e.g. {@code "probably 0.5"} or {@code "otherwise"}.
+         */
+        String condition(int rule, int branch);
+
+        /**
+         * @param rule the rule number.
+         * @param branch the branch number.
+         * @return number of symbols rewritten by the branch.
+         */
+        long hits(int rule, int branch);
+
+        /**
+         * @param rule the rule number.
+         * @return number of symbols left unchanged because no branch condition of the rule was met.
+         */
+        long misses(int rule);
+
+        /**
+         * @return number of evaluated {@link Builder#precedes precedes} and {@link Builder#follows follows} conditions.
+         */
+        long contextAttempts();
+
+        /**
+         * @return number of evaluated context conditions that have been met.
+         */
+        long contextMatches();
+    }
+
+    /**
+     * Holds state of an executing rewriting process. To avoid allocation while rewriting, the state
+     * passed to interpreters and functions as well as variables it returns are reused by the engine:
+     * a state is only valid during the call it is passed to, and a variable only until a few more
+     * variables are requested. Use {@link #snapshot()} to keep values for longer.
      */
     interface State<S> {
 
@@ -196,6 +531,62 @@ public interface LSystem<S> {
          */
         void set(String name, Var v);
 
+        /**
+         * @return number of parameters the current symbol has.
+         */
+        int arity();
+
+        /**
+         * Resolves a variable name into a slot, i.e. the position of the variable
+         * in {@link Builder#def(String...)} of the current symbol's rule.
+         * @param name the variable name, must not be {@code null}.
+         * @return the slot of the variable.
+         */
+        int slot(String name);
+
+        /**
+         * Retrieves a variable by its slot.
+         * @param slot the slot of the variable.
+         * @return a {@code Var} representing the variable.
+         * @see #slot(String)
+         */
+        Var var(int slot);
+
+        /**
+         * Retrieves value of a variable by its slot as a {@code boolean}.
+         * @param slot the slot of the variable.
+         * @return a {@code boolean} value of the variable.
+         */
+        boolean booleanVar(int slot);
+
+        /**
+         * Retrieves value of a variable by its slot as a {@code double}.
+         * @param slot the slot of the variable.
+         * @return a {@code double} value of the variable.
+         */
+        double doubleVar(int slot);
+
+        /**
+         * Retrieves value of a variable by its slot as an {@code int}.
+         * @param slot the slot of the variable.
+         * @return an {@code int} value of the variable.
+         */
+        int intVar(int slot);
+
+        /**
+         * Updates a variable value by its slot.
+         * @param slot the slot of the variable.
+         * @param v a {@code Var} containing new value.
+         */
+        void set(int slot, Var v);
+
+        /**
+         * Makes an immutable copy of this state. The engine reuses a single mutable state, so interpreters
+         * and functions need a snapshot in order to keep the state beyond the call they received it in.
+         * @return the copy of this state.
+         */
+        State<S> snapshot();
+
         /**
          * Wraps a {@code boolean} value into anonymous variable.
          * @param value the value to be wrapped.
@@ -217,6 +608,109 @@ public interface LSystem<S> {
          */
         Var wrap(int value);
 
+        /**
+         * A named variable handle to be captured by functions passed to {@link Builder#when}
+         * and {@link Builder#fun}. The name is resolved into a slot once per rule rather than
+         * on every access, handles may be shared by threads.
+         */
+        final class Slot {
+            private static final int MAX_BINDINGS = 16;
+
+            private final String name;
+            /* slots resolved for distinct rules, replaced as a whole so readers never see a partial update */
+            private volatile Binding[] bindings = new Binding[0];
+
+            private Slot(String name) {
+                this.name = name;
+            }
+
+            /**
+             * Creates a handle of a variable.
+             * @param name the variable name, must not be {@code null}.
+             * @return the variable handle.
+             */
+            public static Slot of(String name) {
+                return new Slot(requireNonNull(name));
+            }
+
+            /**
+             * @return the variable name.
+             */
+            public String name() {
+                return name;
+            }
+
+            /**
+             * @param state the state of a rewriting process.
+             * @return a {@code Var} representing the variable.
+             */
+            public Var get(State<?> state) {
+                return state.var(index(state));
+            }
+
+            /**
+             * @param state the state of a rewriting process.
+             * @return a {@code boolean} value of the variable.
+             */
+            public boolean booleanVal(State<?> state) {
+                return state.booleanVar(index(state));
+            }
+
+            /**
+             * @param state the state of a rewriting process.
+             * @return a {@code double} value of the variable.
+             */
+            public double doubleVal(State<?> state) {
+                return state.doubleVar(index(state));
+            }
+
+            /**
+             * @param state the state of a rewriting process.
+             * @return an {@code int} value of the variable.
+             */
+            public int intVal(State<?> state) {
+                return state.intVar(index(state));
+            }
+
+            /**
+             * @param state the state of a rewriting process.
+             * @param v a {@code Var} containing new value.
+             */
+            public void set(State<?> state, Var v) {
+                state.set(index(state), v);
+            }
+
+            private int index(State<?> state) {
+                if (!(state instanceof Scope)) return state.slot(name);
+                // every rule has its own array of variable names
+                String[] names = ((Scope<?>) state).names();
+                Binding[] known = bindings;
+                for (Binding b : known) {
+                    if (b.names == names) return b.slot;
+                }
+                int slot = state.slot(name);
+                Binding[] grown = (known.length < MAX_BINDINGS ? Arrays.copyOf(known, known.length + 1) : new Binding[1]);
+                grown[grown.length - 1] = new Binding(names, slot);
+                bindings = grown;
+                return slot;
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+
+            private static final class Binding {
+                final String[] names;
+                final int slot;
+
+                Binding(String[] names, int slot) {
+                    this.names = names;
+                    this.slot = slot;
+                }
+            }
+        }
+
         /**
          * Represents a variable within a rewrite context.
          */
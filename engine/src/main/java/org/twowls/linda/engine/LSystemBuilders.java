@@ -16,21 +16,21 @@ public final class LSystemBuilders {
      * @return a builder instance for integer symbols.
      */
     public static IntLSystem.Builder intSymbols() {
-        return null;
+        return new IntSymbolsBuilder();
     }
 
     /**
      * @return a builder instance for string symbols.
      */
     public static StringLSystem.Builder stringSymbols() {
-        return null;
+        return new StringSymbolsBuilder();
     }
 
     /**
      * @return a generic builder instance.
      */
     public static <S> LSystem.Builder<S> genericSymbols() {
-        return null;
+        return new GenericSymbolsBuilder<>();
     }
 
     /* Prevents instantiation */
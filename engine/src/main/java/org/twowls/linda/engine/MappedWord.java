@@ -0,0 +1,96 @@
+package org.twowls.linda.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * <p>{@link PackedWord} kept off-heap in a memory-mapped temporary file, so that its size is only
+ * limited by the disk. The file is mapped in segments of 1 GiB as it grows, mapped regions beyond
+ * the end of the file extend it. The file is deleted when the storage is {@link #close() closed},
+ * disk space is released once mapped segments are garbage collected.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class MappedWord extends PackedWord implements Closeable {
+
+    /* log2 of the number of words per segment */
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private LongBuffer[] segments = new LongBuffer[0];
+
+    /**
+     * @param bits the number of bits per symbol, one of 2, 4 or 8.
+     * @param directory the directory to create the file in.
+     * @throws UncheckedIOException if the file cannot be created.
+     */
+    MappedWord(int bits, Path directory) {
+        super(bits);
+        try {
+            Path file = Files.createTempFile(directory, "linda-", ".gen");
+            this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    long load(long w) {
+        return segments[(int) (w >>> SEGMENT_SHIFT)].get((int) (w & SEGMENT_MASK));
+    }
+
+    @Override
+    void store(long w, long value) {
+        segments[(int) (w >>> SEGMENT_SHIFT)].put((int) (w & SEGMENT_MASK), value);
+    }
+
+    @Override
+    void ensureCapacity(long capacity) {
+        // one spare word lets appends spill over without checking
+        long words = ((capacity + (1 << shift) - 1) >>> shift) + 1;
+        int n = segments.length;
+        if (words <= (long) n << SEGMENT_SHIFT) return;
+
+        int count = (int) ((words + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        segments = Arrays.copyOf(segments, count);
+        try {
+            for (int k = n; k < count; k++) {
+                segments[k] = channel.map(FileChannel.MapMode.READ_WRITE, (long) k << (SEGMENT_SHIFT + 3),
+                        8L << SEGMENT_SHIFT).order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        } catch (IOException e) {
+            segments = Arrays.copyOf(segments, n);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long bytes() {
+        return (long) segments.length << (SEGMENT_SHIFT + 3);
+    }
+
+    /**
+     * Deletes the file, the storage must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        segments = new LongBuffer[0];
+        size = 0;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>Immutable settings of three-dimensional turtle graphics interpreters building tube meshes,
+ * see {@link Interpreters#stl} and {@link Interpreters#glb}.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+public final class MeshOptions {
+
+    final double step;
+    final double angle;
+    final double width;
+    final int sides;
+    final double tropismX, tropismY, tropismZ;
+    final double elasticity;
+
+    private MeshOptions(double step, double angle, double width, int sides,
+                        double tropismX, double tropismY, double tropismZ, double elasticity) {
+        this.step = step;
+        this.angle = angle;
+        this.width = width;
+        this.sides = sides;
+        this.tropismX = tropismX;
+        this.tropismY = tropismY;
+        this.tropismZ = tropismZ;
+        this.elasticity = elasticity;
+    }
+
+    /**
+     * Creates settings having default width of {@code 1/10} of step, eight sided tubes and no tropism.
+     * @param step the default step length.
+     * @param angle the default turn angle in degrees.
+     * @return a {@code MeshOptions} instance.
+     */
+    public static MeshOptions of(double step, double angle) {
+        return new MeshOptions(step, angle, step / 10.0, 8, 0.0, 0.0, 0.0, 0.0);
+    }
+
+    /**
+     * @param width the initial tube diameter, must be positive.
+     * @return a copy of these settings with given width.
+     */
+    public MeshOptions width(double width) {
+        if (!(width > 0.0)) throw new IllegalArgumentException("Width must be positive");
+        return new MeshOptions(step, angle, width, sides, tropismX, tropismY, tropismZ, elasticity);
+    }
+
+    /**
+     * @param sides the number of tube sides, must be at least 3.
+     * @return a copy of these settings with given number of sides.
+     */
+    public MeshOptions sides(int sides) {
+        if (sides < 3) throw new IllegalArgumentException("Tube must have at least 3 sides");
+        return new MeshOptions(step, angle, width, sides, tropismX, tropismY, tropismZ, elasticity);
+    }
+
+    /**
+     * Sets up tropism bending the heading towards a vector after each drawn segment, e.g. {@code (0, -1, 0)}
+     * for gravity.
+     * @param x the {@code X} component of the tropism vector.
+     * @param y the {@code Y} component of the tropism vector.
+     * @param z the {@code Z} component of the tropism vector.
+     * @param elasticity susceptibility of the heading to bending, zero disables tropism.
+     * @return a copy of these settings with given tropism.
+     */
+    public MeshOptions tropism(double x, double y, double z, double elasticity) {
+        return new MeshOptions(step, angle, width, sides, x, y, z, elasticity);
+    }
+}
@@ -0,0 +1,47 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>Three-dimensional turtle graphics interpreter counting vertices and triangles of a tube mesh
+ * without building it.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class MeshSizeTurtle<S> extends MeshTurtle<S, long[]> {
+
+    private long rings;
+    private long tubes;
+
+    /**
+     * @param options the mesh settings.
+     */
+    MeshSizeTurtle(MeshOptions options) {
+        super(options);
+    }
+
+    @Override
+    void start() {
+        rings = 0;
+        tubes = 0;
+    }
+
+    @Override
+    void ring(long index, double[] vertices, double[] normals) {
+        rings++;
+    }
+
+    @Override
+    void tube(long from, double[] va, long to, double[] vb) {
+        tubes++;
+    }
+
+    /**
+     * @return number of vertices and number of triangles.
+     */
+    @Override
+    public long[] getResult() {
+        return new long[]{rings * sides, tubes * 2 * sides};
+    }
+}
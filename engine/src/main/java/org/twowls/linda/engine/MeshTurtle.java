@@ -0,0 +1,270 @@
+package org.twowls.linda.engine;
+
+import java.util.Arrays;
+
+/**
+ * <p>Base of three-dimensional turtle graphics interpreters building generalized cylinders. The turtle
+ * starts at the origin heading along the {@code Y} axis with its left along {@code -X} and understands
+ * following symbols:</p>
+ * <ul>
+ *     <li>{@code F} - moves forward drawing a tube segment,</li>
+ *     <li>{@code f} - moves forward without drawing,</li>
+ *     <li>{@code +}, {@code -} - turn left and right (yaw),</li>
+ *     <li>{@code &}, {@code ^} - pitch down and up,</li>
+ *     <li>{@code \}, {@code /} - roll left and right,</li>
+ *     <li>{@code |} - turns around,</li>
+ *     <li>{@code !} - sets tube diameter to the symbol parameter,</li>
+ *     <li>{@code [}, {@code ]} - save and restore the turtle state.</li>
+ * </ul>
+ * <p>The first parameter of a symbol, if any, overrides the default step or angle (in degrees).</p>
+ *
+ * <p>A tube segment connects two rings of vertices. Consecutive segments share the ring between
+ * them, and so do branches starting where their parent segment ends, as long as the turtle has
+ * not moved or changed the diameter. Rings are numbered in order of creation, only the frame of
+ * the current ring is kept (on the branch stack as well), so memory use does not depend on the
+ * size of the mesh.</p>
+ *
+ * @param <S> the type of a single symbol
+ * @param <R> the type of interpretation result
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+abstract class MeshTurtle<S, R> implements Interpreter<S, R> {
+
+    /* Frame layout: position, heading, left, up, width, ring number, ring frame */
+    private static final int POS = 0, H = 3, L = 6, U = 9, WIDTH = 12, RING = 13, RING_FRAME = 14;
+    private static final int FRAME = 24;
+    /* Ring frame layout: center, left, up, radius */
+    private static final int RC = 0, RL = 3, RU = 6, RR = 9;
+
+    final int sides;
+    private final double step;
+    private final double cos, sin;
+    private final double width;
+    private final double tx, ty, tz, elasticity;
+    private final double[] ringCos, ringSin;
+    private final double[] t = new double[FRAME];
+    private double[] stack = new double[16 * FRAME];
+    private int depth;
+    private long rings;
+    private long cached;
+    private double[] a, an, b, bn;
+
+    /**
+     * @param options the mesh settings.
+     */
+    MeshTurtle(MeshOptions options) {
+        this.sides = options.sides;
+        this.step = options.step;
+        this.cos = Math.cos(Math.toRadians(options.angle));
+        this.sin = Math.sin(Math.toRadians(options.angle));
+        this.width = options.width;
+        double length = Math.sqrt(options.tropismX * options.tropismX + options.tropismY * options.tropismY
+                + options.tropismZ * options.tropismZ);
+        this.elasticity = (length > 0.0 ? options.elasticity : 0.0);
+        this.tx = (length > 0.0 ? options.tropismX / length : 0.0);
+        this.ty = (length > 0.0 ? options.tropismY / length : 0.0);
+        this.tz = (length > 0.0 ? options.tropismZ / length : 0.0);
+        this.ringCos = new double[sides];
+        this.ringSin = new double[sides];
+        for (int k = 0; k < sides; k++) {
+            ringCos[k] = Math.cos(2.0 * Math.PI * k / sides);
+            ringSin[k] = Math.sin(2.0 * Math.PI * k / sides);
+        }
+        this.a = new double[3 * sides];
+        this.an = new double[3 * sides];
+        this.b = new double[3 * sides];
+        this.bn = new double[3 * sides];
+    }
+
+    /**
+     * Invoked before the turtle starts moving.
+     */
+    abstract void start();
+
+    /**
+     * Invoked when a ring of vertices is created.
+     * @param index the ring number, vertex {@code k} of the ring is vertex {@code index * sides + k} of the mesh.
+     * @param vertices coordinates of ring vertices, three per vertex.
+     * @param normals unit normals of ring vertices, three per vertex.
+     */
+    abstract void ring(long index, double[] vertices, double[] normals);
+
+    /**
+     * Invoked for each drawn tube segment.
+     * @param from the number of the starting ring.
+     * @param va coordinates of vertices of the starting ring.
+     * @param to the number of the ending ring.
+     * @param vb coordinates of vertices of the ending ring.
+     */
+    abstract void tube(long from, double[] va, long to, double[] vb);
+
+    /**
+     * Invoked after the turtle has stopped.
+     */
+    void finish() {
+        // does not take any action by default
+    }
+
+    @Override
+    public final void before(LSystem.State<S> state) {
+        Arrays.fill(t, 0.0);
+        t[H + 1] = 1.0;
+        t[L] = -1.0;
+        t[U + 2] = 1.0;
+        t[WIDTH] = width;
+        t[RING] = -1;
+        depth = 0;
+        rings = 0;
+        cached = -1;
+        start();
+    }
+
+    @Override
+    public final void after(LSystem.State<S> state) {
+        finish();
+    }
+
+    @Override
+    public final void interpret(LSystem.State<S> state) {
+        int symbol = TurtleInterpreter.code(state.sym());
+        if (symbol >= 0) move(symbol, state.arity() > 0 ? state.doubleVar(0) : Double.NaN);
+    }
+
+    @Override
+    public final boolean isBatching() {
+        return true;
+    }
+
+    @Override
+    public final void interpretBatch(int[] symbols, int from, int to, Params params) {
+        for (int i = from; i < to; i++) move(symbols[i], params.count(i) > 0 ? params.doubleVal(i, 0) : Double.NaN);
+    }
+
+    private void move(int symbol, double param) {
+        double c = cos, s = sin;
+        if ((symbol != 'F' && symbol != 'f' && symbol != '!') && !Double.isNaN(param)) {
+            double angle = Math.toRadians(param);
+            c = Math.cos(angle);
+            s = Math.sin(angle);
+        }
+
+        switch (symbol) {
+            case 'F':
+                draw(Double.isNaN(param) ? step : param);
+                break;
+            case 'f':
+                forward(Double.isNaN(param) ? step : param);
+                t[RING] = -1;
+                break;
+            case '+': rotate(H, L, c, s); break;
+            case '-': rotate(H, L, c, -s); break;
+            case '&': rotate(H, U, c, -s); break;
+            case '^': rotate(H, U, c, s); break;
+            case '\\': rotate(L, U, c, s); break;
+            case '/': rotate(L, U, c, -s); break;
+            case '|': rotate(H, L, -1.0, 0.0); break;
+            case '!':
+                if (!Double.isNaN(param) && param != t[WIDTH]) {
+                    t[WIDTH] = param;
+                    t[RING] = -1;
+                }
+                break;
+            case '[': {
+                int top = depth * FRAME;
+                if (top + FRAME > stack.length) stack = Arrays.copyOf(stack, IntWord.newCapacity(stack.length, top + FRAME, TurtleInterpreter.TOO_MANY_VERTICES));
+                System.arraycopy(t, 0, stack, top, FRAME);
+                depth++;
+                break;
+            }
+            case ']':
+                if (depth == 0) throw new IllegalStateException("Unbalanced branch");
+                System.arraycopy(stack, --depth * FRAME, t, 0, FRAME);
+                break;
+            default:
+                // other symbols do not move the turtle
+        }
+    }
+
+    private void draw(double length) {
+        long from = (long) t[RING];
+        if (from < 0) {
+            from = newRing();
+            vertices(a, an);
+            ring(from, a, an);
+        } else if (cached != from) {
+            vertices(a, an);
+        }
+
+        forward(length);
+        long to = newRing();
+        vertices(b, bn);
+        ring(to, b, bn);
+        tube(from, a, to, b);
+
+        // the ending ring starts the next segment
+        double[] v = a; a = b; b = v;
+        v = an; an = bn; bn = v;
+        cached = to;
+        if (elasticity != 0.0) bend();
+    }
+
+    private void forward(double length) {
+        for (int i = 0; i < 3; i++) t[POS + i] += t[H + i] * length;
+    }
+
+    /* Makes a ring at the current turtle position */
+    private long newRing() {
+        long index = rings++;
+        t[RING] = index;
+        System.arraycopy(t, POS, t, RING_FRAME + RC, 3);
+        System.arraycopy(t, L, t, RING_FRAME + RL, 3);
+        System.arraycopy(t, U, t, RING_FRAME + RU, 3);
+        t[RING_FRAME + RR] = t[WIDTH] / 2.0;
+        return index;
+    }
+
+    /* Computes vertices of the current ring */
+    private void vertices(double[] v, double[] n) {
+        int f = RING_FRAME;
+        double r = t[f + RR];
+        for (int k = 0, j = 0; k < sides; k++, j += 3) {
+            double c = ringCos[k], s = ringSin[k];
+            for (int i = 0; i < 3; i++) {
+                double d = t[f + RL + i] * c + t[f + RU + i] * s;
+                n[j + i] = d;
+                v[j + i] = t[f + RC + i] + d * r;
+            }
+        }
+    }
+
+    private void rotate(int u, int v, double c, double s) {
+        for (int i = 0; i < 3; i++) {
+            double x = t[u + i], y = t[v + i];
+            t[u + i] = x * c + y * s;
+            t[v + i] = y * c - x * s;
+        }
+    }
+
+    /* Rotates the turtle towards the tropism vector */
+    private void bend() {
+        double kx = t[H + 1] * tz - t[H + 2] * ty;
+        double ky = t[H + 2] * tx - t[H] * tz;
+        double kz = t[H] * ty - t[H + 1] * tx;
+        double length = Math.sqrt(kx * kx + ky * ky + kz * kz);
+        if (length < 1e-12) return;
+        double angle = elasticity * length, c = Math.cos(angle), s = Math.sin(angle);
+        kx /= length;
+        ky /= length;
+        kz /= length;
+        for (int v = H; v <= U; v += 3) {
+            // Rodrigues' rotation formula
+            double x = t[v], y = t[v + 1], z = t[v + 2];
+            double dot = (kx * x + ky * y + kz * z) * (1.0 - c);
+            t[v] = x * c + (ky * z - kz * y) * s + kx * dot;
+            t[v + 1] = y * c + (kz * x - kx * z) * s + ky * dot;
+            t[v + 2] = z * c + (kx * y - ky * x) * s + kz * dot;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.twowls.linda.engine;
+
+import java.util.Arrays;
+
+/**
+ * <p>Growable storage of a single generation of parameterless symbols from a small alphabet.
+ * Symbols are numbered densely and packed into {@code long} words using 8, 4 or 2 bits each,
+ * symbol {@code i} occupying the bits starting at {@code (i % n) * bits} of word {@code i / n},
+ * where {@code n} is the number of symbols per word.</p>
+ *
+ * <p>Bits following the last symbol are always zero, so symbols are appended by merging whole
+ * patterns into at most two words and storage may be reused without clearing it. Words are kept
+ * in a {@code long[]}, subclasses may keep them elsewhere by overriding {@link #load(long)},
+ * {@link #store(long, long)} and {@link #ensureCapacity(long)}.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class PackedWord implements Word {
+
+    private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+    private static final int DEFAULT_WORDS = 4;
+
+    final int bits;
+    /* log2 of the number of symbols per word */
+    final int shift;
+    final int mask;
+    long[] data;
+    long size;
+
+    /**
+     * @param bits the number of bits per symbol, one of 2, 4 or 8.
+     * @param capacity the initial capacity in symbols.
+     */
+    PackedWord(int bits, long capacity) {
+        this(bits);
+        this.data = new long[(int) Math.max(DEFAULT_WORDS, Math.min(MAX_WORDS, (capacity >>> shift) + 1))];
+    }
+
+    /**
+     * Creates storage having no {@code long[]}, see {@link #load(long)}.
+     * @param bits the number of bits per symbol, one of 2, 4 or 8.
+     */
+    PackedWord(int bits) {
+        if (bits != 2 && bits != 4 && bits != 8) throw new IllegalArgumentException("Unsupported symbol width: " + bits);
+        this.bits = bits;
+        this.shift = 6 - Integer.numberOfTrailingZeros(bits);
+        this.mask = (1 << bits) - 1;
+    }
+
+    /**
+     * @param bits the number of bits per symbol.
+     * @param symbols the number of symbols.
+     * @return the number of bytes taken by the symbols.
+     */
+    static long bytes(int bits, long symbols) {
+        return (symbols > Long.MAX_VALUE / bits ? Long.MAX_VALUE : (symbols * bits + 7) >>> 3);
+    }
+
+    /**
+     * Picks the narrowest supported packing for an alphabet.
+     * @param symbols the number of distinct symbols.
+     * @return the number of bits per symbol, or {@code 0} if the alphabet is too large to be packed.
+     */
+    static int bits(int symbols) {
+        if (symbols <= 4) return 2;
+        if (symbols <= 16) return 4;
+        return (symbols <= 256 ? 8 : 0);
+    }
+
+    /**
+     * Packs a sequence of symbols into patterns accepted by {@link #append(long, int)}.
+     * @param bits the number of bits per symbol.
+     * @param symbols the symbols, each in range {@code 0..2^bits - 1}.
+     * @return patterns of {@code 64 / bits} symbols each, the last one possibly shorter.
+     */
+    static long[] patterns(int bits, int[] symbols) {
+        int n = 64 / bits;
+        long[] patterns = new long[(symbols.length + n - 1) / n];
+        for (int i = 0; i < symbols.length; i++) patterns[i / n] |= (long) symbols[i] << ((i % n) * bits);
+        return patterns;
+    }
+
+    /**
+     * Removes all symbols keeping allocated storage.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param index the symbol position.
+     * @return the symbol at the position.
+     */
+    final int get(long index) {
+        return (int) (load(index >>> shift) >>> (((int) index & ((1 << shift) - 1)) * bits)) & mask;
+    }
+
+    /**
+     * Appends up to {@code 64 / bits} symbols packed into a single pattern.
+     * @param pattern the symbols, the first one in the lowest bits, all bits above them must be zero.
+     * @param length the number of symbols in the pattern.
+     */
+    final void append(long pattern, int length) {
+        ensureCapacity(size + length);
+        long w = size >>> shift;
+        int offset = ((int) size & ((1 << shift) - 1)) * bits;
+        if (offset == 0) {
+            store(w, pattern);
+        } else {
+            store(w, load(w) | pattern << offset);
+            if (offset + length * bits > 64) store(w + 1, pattern >>> (64 - offset));
+        }
+        size += length;
+    }
+
+    /**
+     * Appends a sequence of symbols packed by {@link #patterns(int, int[])}.
+     * @param patterns the packed symbols.
+     * @param length the number of symbols.
+     */
+    final void append(long[] patterns, int length) {
+        int n = 1 << shift;
+        for (int i = 0; length > 0; i++, length -= n) append(patterns[i], Math.min(n, length));
+    }
+
+    /**
+     * Unpacks a range of symbols.
+     * @param from the first symbol position, inclusive.
+     * @param dst the array receiving symbols.
+     * @param length the number of symbols to unpack.
+     */
+    final void unpack(long from, int[] dst, int length) {
+        for (int i = 0; i < length; i++) dst[i] = get(from + i);
+    }
+
+    /**
+     * @param w the word index.
+     * @return the word.
+     */
+    long load(long w) {
+        return data[(int) w];
+    }
+
+    /**
+     * @param w the word index.
+     * @param value the new word.
+     */
+    void store(long w, long value) {
+        data[(int) w] = value;
+    }
+
+    @Override
+    public long bytes() {
+        return 32L + 8L * data.length;
+    }
+
+    /**
+     * Ensures that storage is able to hold at least {@code capacity} symbols.
+     * @param capacity the required capacity.
+     */
+    void ensureCapacity(long capacity) {
+        long words = (capacity + (1 << shift) - 1) >>> shift;
+        // one spare word lets appends spill over without checking
+        if (words + 1 > data.length) grow(words + 1);
+    }
+
+    private void grow(long minWords) {
+        if (minWords > MAX_WORDS) throw new OutOfMemoryError("Generation is too large");
+        int current = data.length;
+        data = Arrays.copyOf(data, (int) Math.min(MAX_WORDS, Math.max(minWords, current + (long) (current >> 1))));
+    }
+}
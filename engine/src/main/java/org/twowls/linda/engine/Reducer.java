@@ -0,0 +1,44 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>An interpretation of a generation expressed as an associative reduction of its symbols, similar
+ * to {@link java.util.stream.Collector}. Unlike {@link Interpreter} a reducer keeps no state, so the same
+ * instance may serve any number of concurrent reductions.</p>
+ *
+ * <p>Results must form a monoid: {@link #combine} must be associative with {@link #identity()} being
+ * its neutral element, and {@code accumulate(r, s)} must equal {@code combine(r, accumulate(identity(), s))}.
+ * This lets the engine reduce chunks of a generation in parallel and, for deterministic context-free
+ * L-Systems of parameterless symbols, reuse the result of each symbol expanded to each depth instead
+ * of visiting every symbol. Results may be shared between reductions, so they should be immutable.</p>
+ *
+ * @param <S> the type of a single symbol
+ * @param <R> the type of result value
+ * @see LSystem#reduce(int, Reducer)
+ * @see Reducers
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+public interface Reducer<S, R> {
+
+    /**
+     * @return the result of an empty sequence of symbols.
+     */
+    R identity();
+
+    /**
+     * <p>Appends a symbol to a result. The state is only valid during the call. When results are
+     * reused its position is not meaningful, so a reducer must depend on the symbol and its parameters only.</p>
+     * @param result the result of preceding symbols.
+     * @param state the state positioned at the symbol.
+     * @return the result of preceding symbols followed by the symbol.
+     */
+    R accumulate(R result, LSystem.State<S> state);
+
+    /**
+     * @param left the result of a sequence of symbols.
+     * @param right the result of a sequence of symbols immediately following {@code left}.
+     * @return the result of both sequences.
+     */
+    R combine(R left, R right);
+}
@@ -0,0 +1,60 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>Provides utility methods that create simple reducer instances.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+public final class Reducers {
+
+    /**
+     * <p>Creates a reducer that counts up symbols.</p>
+     * @return a {@code Reducer<Long>} instance.
+     */
+    public static <S> Reducer<S, Long> counting() {
+        return new Reducer<>() {
+            @Override
+            public Long identity() {
+                return 0L;
+            }
+
+            @Override
+            public Long accumulate(Long result, LSystem.State<S> state) {
+                return result + 1L;
+            }
+
+            @Override
+            public Long combine(Long left, Long right) {
+                return left + right;
+            }
+        };
+    }
+
+    /**
+     * <p>Creates a reducer that counts up occurrences of a symbol.</p>
+     * @param symbol the symbol to count.
+     * @return a {@code Reducer<Long>} instance.
+     */
+    public static <S> Reducer<S, Long> counting(S symbol) {
+        return new Reducer<>() {
+            @Override
+            public Long identity() {
+                return 0L;
+            }
+
+            @Override
+            public Long accumulate(Long result, LSystem.State<S> state) {
+                return (state.is(symbol) ? result + 1L : result);
+            }
+
+            @Override
+            public Long combine(Long left, Long right) {
+                return left + right;
+            }
+        };
+    }
+
+    /* Prevents instantiation */
+    private Reducers() {}
+}
@@ -0,0 +1,119 @@
+package org.twowls.linda.engine;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * <p>A rewriting rule (production) as assembled by {@link LSystem.Builder}. A rule consists of
+ * one or more branches, the first branch whose condition is met supplies the successor symbols.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class Rule<S> {
+
+    static final String[] NO_NAMES = new String[0];
+
+    final S symbol;
+    final List<Branch<S>> branches = new ArrayList<>();
+    String[] names = NO_NAMES;
+
+    Rule(S symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * @return {@code true} if no branch of this rule depends on neighboring symbols.
+     */
+    boolean isContextFree() {
+        for (Branch<S> branch : branches) {
+            if (branch.contextual) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A single branch of a rule.
+     */
+    static final class Branch<S> {
+        final int index;
+        final Set<S> skip = new HashSet<>();
+        final List<Successor<S>> successors = new ArrayList<>();
+        final List<Context<S>> contexts = new ArrayList<>();
+        Condition<S> condition;
+        String label = "always";
+        boolean contextual;
+        boolean fallback;
+
+        /**
+         * @param index position of the branch within its rule.
+         */
+        Branch(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * A symbol produced by a branch along with expressions computing its parameters.
+     */
+    static final class Successor<S> {
+        final S symbol;
+        final List<Function<LSystem.State<S>, LSystem.State.Var>> params = new ArrayList<>();
+
+        Successor(S symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    /**
+     * A context condition that matches a sequence of symbols adjacent to the current one. Neighbours
+     * are looked up in the {@link ContextIndex} of the generation, which keeps the key of this condition
+     * and the codes of its symbols by its id.
+     */
+    static final class Context<S> implements Condition<S> {
+        final int id;
+        final boolean right;
+        final List<S> symbols = new ArrayList<>();
+
+        /**
+         * @param id number of the condition, unique among conditions collected by a builder.
+         * @param right {@code true} to match symbols following the current one
+         *  ({@link LSystem.Builder#precedes}), {@code false} to match preceding symbols
+         *  ({@link LSystem.Builder#follows}).
+         */
+        Context(int id, boolean right) {
+            this.id = id;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(Scope<S> scope) {
+            boolean matched = matches(scope);
+            if (scope.counters != null) scope.counters.context(matched);
+            return matched;
+        }
+
+        private boolean matches(Scope<S> scope) {
+            ContextIndex<S> index = scope.contexts;
+            int key = index.key(id), pos = scope.index();
+            int[] codes = index.symbols(id);
+            if (right) {
+                for (int i = 0, length = scope.length(); i < codes.length; i++) {
+                    pos = index.next(key, pos, length);
+                    if (pos < 0 || scope.codeAt(pos) != codes[i]) return false;
+                }
+            } else {
+                for (int i = codes.length - 1; i >= 0; i--) {
+                    pos = index.prev(key, pos);
+                    if (pos < 0 || scope.codeAt(pos) != codes[i]) return false;
+                }
+            }
+            return true;
+        }
+    }
+}
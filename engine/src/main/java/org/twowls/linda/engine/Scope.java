@@ -0,0 +1,282 @@
+package org.twowls.linda.engine;
+
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * <p>Mutable implementation of {@link LSystem.State} used by rewriting engines. Besides the public
+ * state a scope gives rule conditions access to the generation being rewritten.</p>
+ *
+ * <p>Variables handed out by a scope are recycled from a small ring of {@link Cell}s, so they
+ * stay valid for the next {@value #CELLS} variables only.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+abstract class Scope<S> implements LSystem.State<S> {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int CELLS = 8;
+
+    private final long seed;
+    private final Cell[] cells;
+    private int cell;
+    private String[] names = Rule.NO_NAMES;
+    private double[] values;
+    private byte[] kinds;
+    private int offset;
+    private int count;
+    private boolean owned;
+    private double[] ownValues = new double[4];
+    private byte[] ownKinds = new byte[4];
+    private boolean drawn;
+    private double chance;
+    long position = -1;
+    int generation;
+    long seq;
+    Counters<S> counters;
+    ContextIndex<S> contexts;
+
+    /**
+     * @param seed the seed of random numbers for stochastic branches.
+     */
+    Scope(long seed) {
+        this(seed, true);
+    }
+
+    /**
+     * @param seed the seed of random numbers for stochastic branches.
+     * @param recycling {@code true} to recycle variables, {@code false} to hand out immutable ones.
+     */
+    Scope(long seed, boolean recycling) {
+        this.seed = seed;
+        this.cells = (recycling ? new Cell[CELLS] : null);
+        if (recycling) {
+            for (int i = 0; i < CELLS; i++) cells[i] = new Cell();
+        }
+    }
+
+    /**
+     * Moves this scope to a symbol having no parameters.
+     * @param position position of the symbol within the current generation,
+     *  or {@code -1} if there is no current symbol.
+     * @param names names of variables defined for the symbol.
+     */
+    final void enter(long position, String[] names) {
+        this.position = position;
+        this.names = names;
+        this.count = 0;
+        this.owned = false;
+        this.drawn = false;
+    }
+
+    /**
+     * Moves this scope to a symbol, parameters are read directly from the value lanes of a generation.
+     * @param position position of the symbol within the current generation,
+     *  or {@code -1} if there is no current symbol.
+     * @param names names of variables defined for the symbol.
+     * @param params the storage holding the symbol parameters.
+     * @param index position of the symbol within {@code params}.
+     */
+    final void enter(long position, String[] names, IntWord params, int index) {
+        enter(position, names);
+        if (params.offsets != null) {
+            this.values = params.values;
+            this.kinds = params.kinds;
+            this.offset = params.offsets[index];
+            this.count = params.offsets[index + 1] - offset;
+        }
+    }
+
+    /**
+     * Appends parameters of the current symbol, possibly updated by {@link #set(int, Var)}, to the last
+     * symbol of a storage.
+     * @param dst the storage.
+     */
+    final void copyParams(IntWord dst) {
+        for (int i = offset, end = offset + count; i < end; i++) dst.param(kinds[i], values[i]);
+    }
+
+    /**
+     * @return names of variables defined for the current symbol.
+     */
+    final String[] names() {
+        return names;
+    }
+
+    /**
+     * @return position of the current symbol within the current generation.
+     */
+    final int index() {
+        return (int) position;
+    }
+
+    /**
+     * @return number of symbols in the current generation.
+     */
+    abstract int length();
+
+    /**
+     * Returns the code of a symbol of the current generation, see {@link Alphabet}.
+     * @param index position within the current generation, must be in range {@code 0..length() - 1}.
+     * @return the code of the symbol at the position.
+     */
+    abstract int codeAt(int index);
+
+    /**
+     * Returns a uniformly distributed random number associated with the current symbol.
+     * The number only depends on the seed, the generation and position of the symbol,
+     * so it does not depend on the order in which symbols are rewritten.
+     * @return a value in range {@code 0..1} (exclusive).
+     */
+    final double random() {
+        if (!drawn) {
+            chance = random(seed, generation, position);
+            drawn = true;
+        }
+        return chance;
+    }
+
+    /**
+     * Computes a uniformly distributed random number for a symbol.
+     * @param seed the seed.
+     * @param generation the generation of the symbol.
+     * @param position position of the symbol within its generation.
+     * @return a value in range {@code 0..1} (exclusive).
+     */
+    static double random(long seed, int generation, long position) {
+        long z = mix(seed + GOLDEN_GAMMA * (generation + 1L));
+        z = mix(z + GOLDEN_GAMMA * (position + 1L));
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /* SplitMix64 finalizer */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public long seq() {
+        return seq;
+    }
+
+    @Override
+    public boolean is(S symbol) {
+        return (position >= 0 && symbol != null && symbol.equals(sym()));
+    }
+
+    @Override
+    public Var var(String name) {
+        int slot = slot(name);
+        if (slot >= count || kinds[offset + slot] == Value.NONE)
+            throw new IllegalArgumentException("Variable has no value: " + name);
+        return var(kinds[offset + slot], values[offset + slot]);
+    }
+
+    @Override
+    public void set(String name, Var v) {
+        set(slot(name), v);
+    }
+
+    @Override
+    public int arity() {
+        return count;
+    }
+
+    @Override
+    public int slot(String name) {
+        requireNonNull(name);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        throw new IllegalArgumentException("Unknown variable: " + name);
+    }
+
+    @Override
+    public Var var(int slot) {
+        int i = checked(slot);
+        return var(kinds[i], values[i]);
+    }
+
+    @Override
+    public boolean booleanVar(int slot) {
+        return (values[checked(slot)] != 0.0);
+    }
+
+    @Override
+    public double doubleVar(int slot) {
+        return values[checked(slot)];
+    }
+
+    @Override
+    public int intVar(int slot) {
+        return (int) values[checked(slot)];
+    }
+
+    @Override
+    public void set(int slot, Var v) {
+        requireNonNull(v);
+        if (slot < 0 || slot >= names.length) throw new IllegalArgumentException("Unknown variable slot: " + slot);
+        if (!owned) {
+            // values of the current generation are shared, so they are copied before modification
+            if (ownValues.length < names.length) {
+                ownValues = new double[names.length];
+                ownKinds = new byte[names.length];
+            }
+            if (count > 0) {
+                System.arraycopy(values, offset, ownValues, 0, count);
+                System.arraycopy(kinds, offset, ownKinds, 0, count);
+            }
+            values = ownValues;
+            kinds = ownKinds;
+            offset = 0;
+            owned = true;
+        }
+        if (slot >= count) {
+            Arrays.fill(kinds, count, slot, Value.NONE);
+            count = slot + 1;
+        }
+        values[slot] = v.doubleVal();
+        kinds[slot] = Value.kind(v);
+    }
+
+    @Override
+    public Var wrap(boolean value) {
+        return (cells != null ? var(Value.BOOLEAN, value ? 1.0 : 0.0) : Value.of(value));
+    }
+
+    @Override
+    public Var wrap(double value) {
+        return var(Value.DOUBLE, value);
+    }
+
+    @Override
+    public Var wrap(int value) {
+        return var(Value.INT, value);
+    }
+
+    @Override
+    public LSystem.State<S> snapshot() {
+        return new Snapshot<>(this);
+    }
+
+    private Var var(byte kind, double value) {
+        if (cells == null) return Value.of(kind, value);
+        Cell c = cells[cell];
+        cell = (cell + 1) & (CELLS - 1);
+        return c.set(kind, value);
+    }
+
+    private int checked(int slot) {
+        if (slot < 0 || slot >= count || kinds[offset + slot] == Value.NONE) {
+            String name = (slot >= 0 && slot < names.length ? names[slot] : "#" + slot);
+            throw new IllegalArgumentException("Variable has no value: " + name);
+        }
+        return offset + slot;
+    }
+}
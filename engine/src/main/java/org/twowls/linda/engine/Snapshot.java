@@ -0,0 +1,50 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>Immutable copy of a {@link Scope} detached from the generation being rewritten.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class Snapshot<S> extends Scope<S> {
+
+    private final S symbol;
+
+    Snapshot(Scope<S> scope) {
+        super(0L, false);
+        this.symbol = scope.sym();
+        this.generation = scope.generation;
+        this.seq = scope.seq;
+        IntWord params = new IntWord(1);
+        params.add(0);
+        scope.copyParams(params);
+        enter(scope.position, scope.names(), params, 0);
+    }
+
+    @Override
+    int length() {
+        return 0;
+    }
+
+    @Override
+    int codeAt(int index) {
+        throw new IndexOutOfBoundsException("Snapshot has no generation");
+    }
+
+    @Override
+    public S sym() {
+        return symbol;
+    }
+
+    @Override
+    public void set(int slot, Var v) {
+        throw new UnsupportedOperationException("Snapshot is immutable");
+    }
+
+    @Override
+    public LSystem.State<S> snapshot() {
+        return this;
+    }
+}
@@ -0,0 +1,112 @@
+package org.twowls.linda.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Three-dimensional turtle graphics interpreter writing a tube mesh as binary STL to a channel
+ * while rewriting. The number of triangles precedes them in STL, so it has to be known in advance,
+ * for example computed by a {@link MeshSizeTurtle} pass.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class StlTurtle<S> extends MeshTurtle<S, Long> {
+
+    private static final int HEADER_SIZE = 80;
+    private static final int TRIANGLE_SIZE = 50;
+
+    private final WritableByteChannel channel;
+    private final long expected;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private long triangles;
+
+    /**
+     * @param options the mesh settings.
+     * @param triangles the number of triangles to be written.
+     * @param channel the channel to write to.
+     */
+    StlTurtle(MeshOptions options, long triangles, WritableByteChannel channel) {
+        super(options);
+        if (triangles < 0 || triangles > 0xFFFFFFFFL) throw new IllegalArgumentException("Invalid number of triangles");
+        this.expected = triangles;
+        this.channel = channel;
+    }
+
+    @Override
+    void start() {
+        buffer.clear();
+        triangles = 0;
+        byte[] header = "binary STL by linda".getBytes(StandardCharsets.US_ASCII);
+        buffer.put(header).put(new byte[HEADER_SIZE - header.length]);
+        buffer.putInt((int) expected);
+    }
+
+    @Override
+    void ring(long index, double[] vertices, double[] normals) {
+        // vertices are written along with triangles
+    }
+
+    @Override
+    void tube(long from, double[] va, long to, double[] vb) {
+        for (int k = 0; k < sides; k++) {
+            int i = 3 * k, j = 3 * ((k + 1) % sides);
+            triangle(va, i, va, j, vb, j);
+            triangle(va, i, vb, j, vb, i);
+        }
+    }
+
+    @Override
+    void finish() {
+        flush();
+        if (triangles != expected)
+            throw new IllegalStateException("Expected " + expected + " triangles but " + triangles + " were written");
+    }
+
+    /**
+     * @return number of written triangles.
+     */
+    @Override
+    public Long getResult() {
+        return triangles;
+    }
+
+    private void triangle(double[] p, int i, double[] q, int j, double[] r, int k) {
+        if (++triangles > expected) throw new IllegalStateException("Mesh has more than " + expected + " triangles");
+        if (buffer.remaining() < TRIANGLE_SIZE) flush();
+        double ux = q[j] - p[i], uy = q[j + 1] - p[i + 1], uz = q[j + 2] - p[i + 2];
+        double vx = r[k] - p[i], vy = r[k + 1] - p[i + 1], vz = r[k + 2] - p[i + 2];
+        double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length > 0.0) {
+            nx /= length;
+            ny /= length;
+            nz /= length;
+        }
+        buffer.putFloat((float) nx).putFloat((float) ny).putFloat((float) nz);
+        put(p, i);
+        put(q, j);
+        put(r, k);
+        buffer.putShort((short) 0);
+    }
+
+    private void put(double[] v, int i) {
+        buffer.putFloat((float) v[i]).putFloat((float) v[i + 1]).putFloat((float) v[i + 2]);
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
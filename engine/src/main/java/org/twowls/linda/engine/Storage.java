@@ -0,0 +1,44 @@
+package org.twowls.linda.engine;
+
+import java.nio.file.Path;
+
+/**
+ * <p>Decides where packed generations are kept, see {@link LSystem.Builder#offHeap(long, Path)}.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class Storage {
+
+    /** Keeps all generations on heap. */
+    static final Storage HEAP = new Storage(Long.MAX_VALUE, null);
+
+    private final long threshold;
+    private final Path directory;
+
+    /**
+     * @param threshold the size in bytes above which generations are kept off-heap.
+     * @param directory the directory of memory-mapped files or {@code null} to keep generations on heap.
+     */
+    Storage(long threshold, Path directory) {
+        this.threshold = threshold;
+        this.directory = directory;
+    }
+
+    /**
+     * @param bits the number of bits per symbol.
+     * @param symbols the number of symbols a generation may reach.
+     * @return {@code true} if the generation is to be kept off-heap.
+     */
+    boolean offHeap(int bits, long symbols) {
+        return (directory != null && PackedWord.bytes(bits, symbols) > threshold);
+    }
+
+    /**
+     * @param bits the number of bits per symbol.
+     * @return new off-heap storage of a generation.
+     */
+    MappedWord mapped(int bits) {
+        return new MappedWord(bits, directory);
+    }
+}
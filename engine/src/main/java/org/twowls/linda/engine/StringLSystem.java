@@ -1,5 +1,6 @@
 package org.twowls.linda.engine;
 
+import java.nio.file.Path;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -81,6 +82,9 @@ public interface StringLSystem extends LSystem<String> {
             return this;
         }
 
+        @Override
+        Builder brackets(String open, String close);
+
         @Override
         Builder not();
 
@@ -121,6 +125,21 @@ public interface StringLSystem extends LSystem<String> {
          */
         Builder exploding();
 
+        @Override
+        Builder mode(Mode mode);
+
+        @Override
+        Builder cache(int generations, long bytes);
+
+        @Override
+        Builder offHeap(long threshold, Path directory);
+
+        @Override
+        Builder seed(long seed);
+
+        @Override
+        Builder listener(Listener<String> listener);
+
         @Override
         StringLSystem build();
     }
@@ -0,0 +1,51 @@
+package org.twowls.linda.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * <p>{@link StringLSystem.Builder} implementation.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class StringSymbolsBuilder extends AbstractBuilder<String, StringLSystem.Builder> implements StringLSystem.Builder {
+
+    @Override
+    protected StringLSystem.Builder self() {
+        return this;
+    }
+
+    @Override
+    public StringLSystem.Builder exploding(String delimiter) {
+        requireNonNull(delimiter);
+        if (delimiter.isEmpty()) return exploding();
+        Pattern pattern = Pattern.compile(delimiter, Pattern.LITERAL);
+        return replaceLast(s -> {
+            List<String> parts = new ArrayList<>(Arrays.asList(pattern.split(s)));
+            parts.removeIf(String::isEmpty);
+            return parts;
+        });
+    }
+
+    @Override
+    public StringLSystem.Builder exploding() {
+        return replaceLast(s -> {
+            List<String> parts = new ArrayList<>(s.length());
+            s.codePoints().forEach(cp -> parts.add(new String(Character.toChars(cp))));
+            return parts;
+        });
+    }
+
+    @Override
+    public StringLSystem build() {
+        validate();
+        Alphabet<String> alphabet = Alphabet.interning(symbols());
+        return new StringSymbolsLSystem(alphabet, optimizedRules(), axiomSymbols(), rewriteMode(),
+                generationCache(Word::bytes), storage(), listener(), contextIndex(alphabet), seed());
+    }
+}
@@ -0,0 +1,21 @@
+package org.twowls.linda.engine;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * <p>{@link StringLSystem} implementation based on {@link ArrayIntLSystem}, string symbols are
+ * interned into {@code int} codes when the L-System is built.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class StringSymbolsLSystem extends ArrayIntLSystem<String> implements StringLSystem {
+
+    StringSymbolsLSystem(Alphabet<String> alphabet, Collection<Rule<String>> rules, List<Rule.Successor<String>> axiom,
+                         Mode mode, GenerationCache<Word> cache, Storage storage, Listener<String> listener,
+                         Supplier<ContextIndex<String>> contexts, long seed) {
+        super(alphabet, rules, axiom, mode, cache, storage, listener, contexts, seed);
+    }
+}
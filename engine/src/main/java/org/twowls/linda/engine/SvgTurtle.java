@@ -0,0 +1,140 @@
+package org.twowls.linda.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Turtle graphics interpreter writing drawn segments as SVG path data to a channel while
+ * rewriting. Output goes through a fixed size buffer, so memory use does not depend on the size
+ * of the drawing. The viewport is taken from a bounding box known in advance, for example
+ * computed by a {@link BoundsTurtle} pass. The {@code Y} axis is flipped to point upwards.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class SvgTurtle<S> extends TurtleInterpreter<S, Long> {
+
+    /* Long paths are split so that no attribute grows unbounded */
+    private static final int SEGMENTS_PER_PATH = 4096;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_SEGMENT_BYTES = 128;
+    private static final long SCALE = 1000L;
+
+    private final WritableByteChannel channel;
+    private final double[] bounds;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] digits = new byte[20];
+    private long segments;
+    private int pathSegments;
+    private double lastX, lastY;
+
+    /**
+     * @param step the default step length.
+     * @param angle the default turn angle in degrees.
+     * @param bounds the bounding box of the drawing as {@code minX, minY, maxX, maxY}.
+     * @param channel the channel to write to.
+     */
+    SvgTurtle(double step, double angle, double[] bounds, WritableByteChannel channel) {
+        super(step, angle);
+        this.bounds = bounds.clone();
+        this.channel = channel;
+    }
+
+    @Override
+    void start() {
+        buffer.clear();
+        segments = 0;
+        pathSegments = 0;
+        lastX = lastY = Double.NaN;
+
+        double width = bounds[2] - bounds[0], height = bounds[3] - bounds[1];
+        double stroke = Math.max(Math.max(width, height) / 1000.0, 1.0 / SCALE);
+        put("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"");
+        put(bounds[0] - stroke).put(" ").put(-bounds[3] - stroke).put(" ");
+        put(width + 2 * stroke).put(" ").put(height + 2 * stroke).put("\">\n");
+        put("<g fill=\"none\" stroke=\"black\" stroke-linecap=\"round\" stroke-width=\"").put(stroke).put("\">\n");
+    }
+
+    @Override
+    void segment(double x0, double y0, double x1, double y1) {
+        // a segment never exceeds the limit, so single characters are put without checks
+        if (buffer.remaining() < MAX_SEGMENT_BYTES) flush();
+        if (pathSegments == SEGMENTS_PER_PATH) {
+            put("\"/>\n");
+            pathSegments = 0;
+        }
+        if (pathSegments++ == 0) {
+            put("<path d=\"M").put(x0).put(' ').put(-y0);
+        } else if (x0 != lastX || y0 != lastY) {
+            put('M').put(x0).put(' ').put(-y0);
+        }
+        put('L').put(x1).put(' ').put(-y1);
+        lastX = x1;
+        lastY = y1;
+        segments++;
+    }
+
+    @Override
+    void finish() {
+        if (pathSegments > 0) put("\"/>\n");
+        put("</g>\n</svg>\n");
+        flush();
+    }
+
+    /**
+     * @return number of written segments.
+     */
+    @Override
+    public Long getResult() {
+        return segments;
+    }
+
+    private SvgTurtle<S> put(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        if (buffer.remaining() < bytes.length) flush();
+        buffer.put(bytes);
+        return this;
+    }
+
+    private SvgTurtle<S> put(char c) {
+        buffer.put((byte) c);
+        return this;
+    }
+
+    /* Writes a number with up to three decimals, no allocation involved */
+    private SvgTurtle<S> put(double value) {
+        if (buffer.remaining() < digits.length + 2) flush();
+        long scaled = Math.round(value * SCALE);
+        if (scaled < 0) {
+            buffer.put((byte) '-');
+            scaled = -scaled;
+        }
+        long fraction = scaled % SCALE;
+        int n = 0;
+        for (long integer = scaled / SCALE; n == 0 || integer > 0; integer /= 10) digits[n++] = (byte) ('0' + integer % 10);
+        while (n > 0) buffer.put(digits[--n]);
+        if (fraction != 0) {
+            buffer.put((byte) '.');
+            for (long unit = SCALE / 10; fraction != 0; unit /= 10) {
+                buffer.put((byte) ('0' + fraction / unit));
+                fraction %= unit;
+            }
+        }
+        return this;
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,158 @@
+package org.twowls.linda.engine;
+
+import java.util.Arrays;
+
+/**
+ * <p>Base of two-dimensional turtle graphics interpreters. The turtle starts at the origin heading
+ * along the {@code Y} axis and understands following symbols:</p>
+ * <ul>
+ *     <li>{@code F} - moves forward drawing a segment,</li>
+ *     <li>{@code f} - moves forward without drawing,</li>
+ *     <li>{@code +} - turns left (counterclockwise),</li>
+ *     <li>{@code -} - turns right (clockwise),</li>
+ *     <li>{@code [} - saves the turtle state to the branch stack,</li>
+ *     <li>{@code ]} - restores the turtle state from the branch stack.</li>
+ * </ul>
+ * <p>The first parameter of a symbol, if any, overrides the default step or angle (in degrees).
+ * Other symbols are ignored. Drawn segments are passed to {@link #segment}, the branch stack is
+ * a primitive array reused between rewrites.</p>
+ *
+ * @param <S> the type of a single symbol
+ * @param <R> the type of interpretation result
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+abstract class TurtleInterpreter<S, R> implements Interpreter<S, R> {
+
+    private static final int STACK_FRAME = 4;
+    static final String TOO_MANY_VERTICES = "Too many vertices";
+
+    private final double step;
+    private final double cos;
+    private final double sin;
+    private double[] stack = new double[16 * STACK_FRAME];
+    private int depth;
+    private double x, y, dx, dy;
+
+    /**
+     * @param step the default step length.
+     * @param angle the default turn angle in degrees.
+     */
+    TurtleInterpreter(double step, double angle) {
+        this.step = step;
+        this.cos = Math.cos(Math.toRadians(angle));
+        this.sin = Math.sin(Math.toRadians(angle));
+    }
+
+    /**
+     * Invoked before the turtle starts moving.
+     */
+    abstract void start();
+
+    /**
+     * Invoked for each drawn segment.
+     * @param x0 the {@code X} coordinate of the segment start.
+     * @param y0 the {@code Y} coordinate of the segment start.
+     * @param x1 the {@code X} coordinate of the segment end.
+     * @param y1 the {@code Y} coordinate of the segment end.
+     */
+    abstract void segment(double x0, double y0, double x1, double y1);
+
+    /**
+     * Invoked after the turtle has stopped.
+     */
+    void finish() {
+        // does not take any action by default
+    }
+
+    @Override
+    public final void before(LSystem.State<S> state) {
+        depth = 0;
+        x = y = 0.0;
+        dx = 0.0;
+        dy = 1.0;
+        start();
+    }
+
+    @Override
+    public final void after(LSystem.State<S> state) {
+        finish();
+    }
+
+    @Override
+    public final void interpret(LSystem.State<S> state) {
+        int symbol = code(state.sym());
+        if (symbol >= 0) move(symbol, state.arity() > 0 ? state.doubleVar(0) : Double.NaN);
+    }
+
+    @Override
+    public final boolean isBatching() {
+        return true;
+    }
+
+    @Override
+    public final void interpretBatch(int[] symbols, int from, int to, Params params) {
+        for (int i = from; i < to; i++) move(symbols[i], params.count(i) > 0 ? params.doubleVal(i, 0) : Double.NaN);
+    }
+
+    private void move(int symbol, double param) {
+        switch (symbol) {
+            case 'F':
+            case 'f': {
+                double length = (Double.isNaN(param) ? step : param);
+                double x1 = x + dx * length, y1 = y + dy * length;
+                if (symbol == 'F') segment(x, y, x1, y1);
+                x = x1;
+                y = y1;
+                break;
+            }
+            case '+':
+            case '-': {
+                double c = cos, s = sin;
+                if (!Double.isNaN(param)) {
+                    double a = Math.toRadians(param);
+                    c = Math.cos(a);
+                    s = Math.sin(a);
+                }
+                if (symbol == '-') s = -s;
+                double t = dx * c - dy * s;
+                dy = dx * s + dy * c;
+                dx = t;
+                break;
+            }
+            case '[': {
+                int top = depth * STACK_FRAME;
+                if (top + STACK_FRAME > stack.length) stack = Arrays.copyOf(stack, IntWord.newCapacity(stack.length, top + STACK_FRAME, TOO_MANY_VERTICES));
+                stack[top] = x;
+                stack[top + 1] = y;
+                stack[top + 2] = dx;
+                stack[top + 3] = dy;
+                depth++;
+                break;
+            }
+            case ']': {
+                if (depth == 0) throw new IllegalStateException("Unbalanced branch");
+                int top = --depth * STACK_FRAME;
+                x = stack[top];
+                y = stack[top + 1];
+                dx = stack[top + 2];
+                dy = stack[top + 3];
+                break;
+            }
+            default:
+                // other symbols do not move the turtle
+        }
+    }
+
+    /**
+     * Converts a symbol into a turtle command.
+     * @param symbol the symbol, either a code point or a single character string.
+     * @return the command character or {@code -1} if the symbol is not a command.
+     */
+    static int code(Object symbol) {
+        if (symbol instanceof Integer) return (Integer) symbol;
+        if (symbol instanceof String && ((String) symbol).length() == 1) return ((String) symbol).charAt(0);
+        return -1;
+    }
+}
@@ -0,0 +1,108 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>Immutable {@link LSystem.State.Var} implementation holding a single primitive value.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class Value implements LSystem.State.Var {
+
+    /* Marks a variable having no value */
+    static final byte NONE = -1;
+    static final byte BOOLEAN = 0;
+    static final byte INT = 1;
+    static final byte DOUBLE = 2;
+
+    static final Value TRUE = new Value(BOOLEAN, 1.0);
+    static final Value FALSE = new Value(BOOLEAN, 0.0);
+
+    private final byte kind;
+    private final double value;
+
+    private Value(byte kind, double value) {
+        this.kind = kind;
+        this.value = value;
+    }
+
+    static Value of(boolean value) {
+        return (value ? TRUE : FALSE);
+    }
+
+    static Value of(int value) {
+        return new Value(INT, value);
+    }
+
+    static Value of(double value) {
+        return new Value(DOUBLE, value);
+    }
+
+    static Value of(byte kind, double value) {
+        return (kind == BOOLEAN ? of(value != 0.0) : new Value(kind, value));
+    }
+
+    /**
+     * @param v a variable.
+     * @return the kind of value held by the variable, variables not created by this class are
+     *  treated as {@code double} ones.
+     */
+    static byte kind(LSystem.State.Var v) {
+        if (v instanceof Cell) return ((Cell) v).kind;
+        return (v instanceof Value ? ((Value) v).kind : DOUBLE);
+    }
+
+    /**
+     * Makes an immutable copy of a variable.
+     * @param v a variable.
+     * @return the immutable variable.
+     */
+    static LSystem.State.Var copyOf(LSystem.State.Var v) {
+        return (v instanceof Cell ? of(((Cell) v).kind, v.doubleVal()) : v);
+    }
+
+    static String toString(byte kind, double value) {
+        switch (kind) {
+            case BOOLEAN: return String.valueOf(value != 0.0);
+            case INT: return String.valueOf((int) value);
+            default: return String.valueOf(value);
+        }
+    }
+
+    @Override
+    public boolean booleanVal() {
+        return (value != 0.0);
+    }
+
+    @Override
+    public double doubleVal() {
+        return value;
+    }
+
+    @Override
+    public int intVal() {
+        return (int) value;
+    }
+
+    @Override
+    public int compareTo(LSystem.State.Var other) {
+        return Double.compare(value, other.doubleVal());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Value)) return false;
+        Value other = (Value) o;
+        return (kind == other.kind && Double.compare(value, other.value) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * kind + Double.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return toString(kind, value);
+    }
+}
@@ -0,0 +1,51 @@
+package org.twowls.linda.engine;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>Turtle graphics interpreter writing line segments into a growable {@code float[]}, four values
+ * {@code x0, y0, x1, y1} per segment. The array is reused between rewrites, so interpretation
+ * does not allocate once it has grown large enough.</p>
+ *
+ * @param <S> the type of a single symbol
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class VertexTurtle<S> extends TurtleInterpreter<S, FloatBuffer> {
+
+    private float[] vertices = new float[64];
+    private int size;
+
+    /**
+     * @param step the default step length.
+     * @param angle the default turn angle in degrees.
+     */
+    VertexTurtle(double step, double angle) {
+        super(step, angle);
+    }
+
+    @Override
+    void start() {
+        size = 0;
+    }
+
+    @Override
+    void segment(double x0, double y0, double x1, double y1) {
+        if (size + 4 > vertices.length) vertices = Arrays.copyOf(vertices, IntWord.newCapacity(vertices.length, size + 4, TOO_MANY_VERTICES));
+        vertices[size] = (float) x0;
+        vertices[size + 1] = (float) y0;
+        vertices[size + 2] = (float) x1;
+        vertices[size + 3] = (float) y1;
+        size += 4;
+    }
+
+    /**
+     * @return vertices of line segments, valid until this interpreter is used again.
+     */
+    @Override
+    public FloatBuffer getResult() {
+        return FloatBuffer.wrap(vertices, 0, size);
+    }
+}
@@ -0,0 +1,15 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>Storage of a single derived generation, either {@link IntWord} or {@link PackedWord}.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+interface Word {
+
+    /**
+     * @return estimated size of this storage in bytes.
+     */
+    long bytes();
+}
@@ -0,0 +1,119 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * <p>Tests that rewriting does not allocate per produced symbol.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class AllocationTest {
+
+    /* Allocated bytes of a task run on the current thread, only available with HotSpot management extensions */
+    private static long allocatedBytes(Runnable r) {
+        com.sun.management.ThreadMXBean threads;
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Thread allocation counters are not available");
+            threads = (com.sun.management.ThreadMXBean) bean;
+        } catch (LinkageError e) {
+            assumeTrue(false, "Thread allocation counters are not available");
+            return 0;
+        }
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        r.run();
+        return threads.getThreadAllocatedBytes(id) - before;
+    }
+
+    @Test
+    void streamingDoesNotAllocatePerSymbol() {
+        LSystem.State.Slot n = LSystem.State.Slot.of("n");
+
+        // @formatter:off
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule('A').def("n")
+                    .when(s -> n.intVal(s) > 0)
+                        .out('A').fun(s -> s.wrap(n.intVal(s) - 1))
+                        .out('B').fun(s -> s.wrap(s.doubleVar(0) * 0.5)).fun(s -> s.wrap(true))
+                        .out('A').var("n")
+                    .otherwise()
+                        .out('C')
+                .rule('B').def("w", "f")
+                    .out('B').fun(s -> s.wrap(s.doubleVar(0) + 1.0)).fun(s -> s.wrap(!s.booleanVar(1)))
+                .axiom().out('A').val(Integer.MAX_VALUE)
+                .mode(LSystem.Mode.STREAMING)
+                .build();
+        // @formatter:on
+        Interpreter<Integer, Long> counting = Interpreters.counting();
+        for (int i = 0; i < 20; i++) ls.rewrite(14, Interpreters.counting());
+
+        // 2M symbols
+        long[] count = new long[1];
+        long bytes = allocatedBytes(() -> count[0] = ls.rewrite(20, counting));
+        assertEquals((1L << 21) - 1, count[0]);
+        assertTrue(bytes < 64 * 1024, "allocated " + bytes + " bytes");
+    }
+
+    @Test
+    void turtleDoesNotAllocatePerSegment() {
+        IntLSystem ls = TestSystems.plant().mode(LSystem.Mode.STREAMING).build();
+
+        Interpreter<Integer, java.nio.FloatBuffer> turtle = Interpreters.turtle(1.0, 25.7);
+        for (int i = 0; i < 5; i++) ls.rewrite(12, turtle);
+
+        int[] segments = new int[1];
+        long bytes = allocatedBytes(() -> segments[0] = ls.rewrite(12, turtle).remaining() / 4);
+        assertTrue(segments[0] > 250_000, "segments " + segments[0]);
+        assertTrue(bytes < 64 * 1024, "allocated " + bytes + " bytes");
+    }
+
+    @Test
+    void snapshotKeepsValues() {
+        // @formatter:off
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule('A').def("n")
+                    .out('A').fun(s -> s.wrap(s.intVar(0) - 1))
+                    .out('B').fun(s -> s.wrap(s.doubleVar(0) * 0.5)).fun(s -> s.wrap(true))
+                    .out('A').var("n")
+                .rule('B').def("w", "f").out('B')
+                .axiom().out('A').val(Integer.MAX_VALUE)
+                .build();
+        // @formatter:on
+        LSystem.State<Integer>[] kept = ls.rewrite(1, new Interpreter<Integer, LSystem.State<Integer>[]>() {
+            @SuppressWarnings("unchecked")
+            final LSystem.State<Integer>[] states = new LSystem.State[3];
+            int i;
+
+            @Override
+            public void interpret(LSystem.State<Integer> state) {
+                states[i++] = state.snapshot();
+            }
+
+            @Override
+            public LSystem.State<Integer>[] getResult() {
+                return states;
+            }
+        });
+
+        assertNotSame(kept[0], kept[1]);
+        assertEquals(Integer.valueOf('A'), kept[0].sym());
+        assertEquals(Integer.MAX_VALUE - 1, kept[0].var("n").intVal());
+        assertEquals(Integer.MAX_VALUE / 2.0, kept[1].var("w").doubleVal());
+        assertTrue(kept[1].var("f").booleanVal());
+        assertEquals(2L, kept[2].seq());
+        assertEquals(Integer.MAX_VALUE, kept[2].intVar(0));
+    }
+}
@@ -0,0 +1,105 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * <p>Tests static analysis and optimization of rules.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class AnalysisTest {
+
+    private static StringLSystem.Builder generated() {
+        // @formatter:off
+        return LSystemBuilders.stringSymbols()
+                .rule("A").out("A", "B", "C", "+")
+                .rule("B")
+                    .follows("A").skipping("Q").skipping("+").out("A")
+                    .otherwise().out("B")
+                .rule("C")
+                    .probably(0.5).out("x", "y")
+                    .otherwise().out("x", "y")
+                .rule("+").when(s -> true).out("+")
+                .rule("Z").out("Z", "Z", "Q")
+                .axiom().out("A");
+        // @formatter:on
+    }
+
+    @Test
+    void report() {
+        LSystem.Analysis<String> analysis = generated().analyze();
+        assertEquals(set("+", "x", "y"), analysis.copied());
+        assertEquals(set("Z"), analysis.unreachable());
+        assertEquals(set("C", "+"), analysis.constant());
+        assertEquals(set("Q"), analysis.skippedOnly());
+    }
+
+    @Test
+    void optimizedRewrite() {
+        // @formatter:off
+        StringLSystem expected = LSystemBuilders.stringSymbols()
+                .rule("A").out("A", "B", "C", "+")
+                .rule("B")
+                    .follows("A").skipping("+").out("A")
+                    .otherwise().out("B")
+                .rule("C").out("x", "y")
+                .axiom().out("A")
+                .build();
+        // @formatter:on
+        StringLSystem optimized = generated().build();
+        for (int i = 0; i <= 5; i++) {
+            assertEquals(expected.rewrite(i, Interpreters.joining()), optimized.rewrite(i, Interpreters.joining()));
+        }
+    }
+
+    @Test
+    void foldedRulesBecomeDeterministic() {
+        // @formatter:off
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule('F').probably(0.3).out('F', 'G').otherwise().out('F', 'G')
+                .rule('G').when(s -> s.seq() > 2).out('G').otherwise().out('G')
+                .axiom().out('F')
+                .build();
+        // @formatter:on
+        assertEquals(11, ls.length(10).intValue());
+        assertEquals("FGGG", ls.rewrite(3, Interpreters.joining()));
+    }
+
+    @Test
+    void parametersAreKept() {
+        // producing a parametrized symbol without parameters is not an identity
+        IntLSystem.Builder builder = LSystemBuilders.intSymbols();
+        builder.rule('A').out('A').axiom().out('A').val(1);
+        assertEquals(new HashSet<>(), builder.analyze().constant());
+        assertThrows(IllegalStateException.class, () -> LSystemBuilders.intSymbols().analyze());
+    }
+
+    @Test
+    void rebuildingKeepsBuiltSystems() {
+        // @formatter:off
+        IntLSystem.Builder builder = LSystemBuilders.intSymbols()
+                .rule('b').follows('a').skipping('+').out('x')
+                .rule('c').follows('a').out('y')
+                .axiom().out('a', 'b', 'a', 'c');
+        // @formatter:on
+        IntLSystem first = builder.build();
+        assertEquals("axay", first.rewrite(1, Interpreters.joining()));
+
+        // '+' becomes reachable, so the two conditions no longer skip the same symbols
+        IntLSystem second = builder.rule('a').out('a', '+').build();
+        assertEquals("a+xa+y", second.rewrite(1, Interpreters.joining()));
+        assertEquals("axay", first.rewrite(1, Interpreters.joining()));
+    }
+
+    @SafeVarargs
+    private static <S> HashSet<S> set(S... symbols) {
+        return new HashSet<>(Arrays.asList(symbols));
+    }
+}
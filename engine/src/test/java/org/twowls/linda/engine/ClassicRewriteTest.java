@@ -2,7 +2,15 @@ package org.twowls.linda.engine;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * <p>Trivial and classic rewrite tests.</p>
@@ -43,9 +51,73 @@ class ClassicRewriteTest {
                 .axiom().out(0)
                 .build();
 
-        long[] series = { 1, 1, 2, 3, 5, 8, 13, 21, 34, 55, 89, 144, 233, 377, 610, 987, 1597, 10946, 832040 };
+        long[] series = { 1, 1, 2, 3, 5, 8, 13, 21, 34, 55, 89, 144, 233, 377, 610, 987, 1597, 2584, 4181, 6765,
+                10946, 17711, 28657, 46368, 75025, 121393, 196418, 317811, 514229, 832040 };
         for (int i = 0; i < series.length; i++) {
             assertEquals(Long.valueOf(series[i]), ls.rewrite(i, Interpreters.counting()));
+            assertEquals(BigInteger.valueOf(series[i]), ls.length(i));
         }
     }
+
+    @Test
+    void sparseSymbols() {
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule(-1_000_000).out(7, Integer.MAX_VALUE)
+                .rule(7).out(-1_000_000)
+                .rule(Integer.MIN_VALUE).out(Integer.MIN_VALUE, Integer.MIN_VALUE)
+                .axiom().out(-1_000_000, Integer.MIN_VALUE, 42)
+                .build();
+
+        List<Integer> symbols = new ArrayList<>();
+        ls.rewrite(2, s -> symbols.add(s.sym()));
+        assertEquals(List.of(-1_000_000, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE,
+                Integer.MIN_VALUE, Integer.MIN_VALUE, 42), symbols);
+    }
+
+    @Test
+    void sparseSymbolsOutput() {
+        // ints that are not code points are written as decimal numbers
+        for (LSystem.Mode mode : LSystem.Mode.values()) {
+            IntLSystem ls = LSystemBuilders.intSymbols()
+                    .rule(-5).out(-5, 'x')
+                    .rule('x').out(Integer.MIN_VALUE, 'y')
+                    .axiom().out(-5)
+                    .mode(mode)
+                    .build();
+
+            assertEquals("-5,x,-2147483648,y", ls.rewrite(2, Interpreters.joining(",")));
+            assertEquals("-5x-2147483648y", ls.rewrite(2, Interpreters.joining()));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ls.rewrite(2, Interpreters.printing(new PrintStream(out, true)));
+            assertEquals("-5x-2147483648y" + System.lineSeparator(), out.toString());
+        }
+    }
+
+    @Test
+    void fibonacciCounts() {
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule(0).out(1)
+                .rule(1).out(0, 1)
+                .axiom().out(0)
+                .build();
+
+        BigInteger a = BigInteger.ONE, b = BigInteger.ZERO;
+        for (int i = 0; i <= 120; i++) {
+            Map<Integer, BigInteger> counts = ls.counts(i);
+            assertEquals(a, counts.get(0));
+            assertEquals(b, counts.get(1));
+            assertEquals(a.add(b), ls.length(i));
+            BigInteger t = b; b = a.add(b); a = t;
+        }
+    }
+
+    @Test
+    void countsRequireDeterministicSystem() {
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule('a').probably(0.5).out('a', 'b').otherwise().out('a')
+                .axiom().out('a')
+                .build();
+
+        assertThrows(UnsupportedOperationException.class, () -> ls.length(1));
+    }
 }
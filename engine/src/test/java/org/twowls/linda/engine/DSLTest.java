@@ -2,6 +2,11 @@ package org.twowls.linda.engine;
 
 import org.junit.jupiter.api.Test;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -29,6 +34,37 @@ class DSLTest {
                 .build();
 
     }
+
+    @Test
+    void testGenericEnumOutput() {
+        LSystem<Alphabet> ls = LSystemBuilders.<Alphabet>genericSymbols()
+                .rule(Alphabet.SECOND).out(Alphabet.DRAW).out(Alphabet.MOVE)
+                .rule(Alphabet.FIRST).out(Alphabet.SECOND)
+                .rule(Alphabet.DRAW).when(s -> s.is(Alphabet.DRAW)).out(Alphabet.ROLL)
+                .axiom().out(Alphabet.FIRST)
+                .build();
+
+        assertEquals("SECOND", ls.rewrite(1, Interpreters.joining()));
+        assertEquals("ROLL MOVE", ls.rewrite(3, Interpreters.joining(" ")));
+        List<Alphabet> symbols = new ArrayList<>();
+        ls.rewrite(2, s -> symbols.add(s.sym()));
+        assertEquals(List.of(Alphabet.DRAW, Alphabet.MOVE), symbols);
+    }
+
+    @Test
+    void testGenericObjectSymbols() {
+        LSystem<Object> ls = LSystemBuilders.genericSymbols()
+                .rule(1L).out(Alphabet.FIRST).out(2.5)
+                .rule(Alphabet.FIRST).out(1L).out(1L)
+                .axiom().out(1L)
+                .build();
+
+        assertEquals("1 1 2.5", ls.rewrite(2, Interpreters.joining(" ")));
+        Map<Object, BigInteger> counts = ls.counts(4);
+        assertEquals(BigInteger.valueOf(4), counts.get(1L));
+        assertEquals(BigInteger.valueOf(3), counts.get(2.5));
+    }
+
     @Test
     void testExplodingOutput() {
         StringLSystem ls = LSystemBuilders.stringSymbols()
@@ -37,4 +73,38 @@ class DSLTest {
 
         assertEquals("d+o+g", ls.rewrite(0, Interpreters.joining("+")));
     }
+
+    @Test
+    void testCollidingHashCodes() {
+        // "Aa" and "BB" share the same hash code
+        StringLSystem ls = LSystemBuilders.stringSymbols()
+                .rule("Aa").out("BB")
+                .rule("BB").out("Aa", "C")
+                .axiom().out("Aa")
+                .build();
+
+        assertEquals("Aa C", ls.rewrite(2, Interpreters.joining(" ")));
+        assertEquals("BB C", ls.rewrite(3, Interpreters.joining(" ")));
+    }
+
+    @Test
+    void testInternedStringSymbols() {
+        for (LSystem.Mode mode : LSystem.Mode.values()) {
+            // @formatter:off
+            StringLSystem ls = LSystemBuilders.stringSymbols()
+                    .rule("stem")
+                        .when(s -> s.is("stem") && !s.is("leaf")).out("stem", "[", "leaf", "]", "stem")
+                    .rule("leaf").follows("stem").skipping("[").out("flower")
+                    .axiom().out("stem")
+                    .mode(mode)
+                    .build();
+            // @formatter:on
+
+            assertEquals("stem [ leaf ] stem [ flower ] stem [ leaf ] stem",
+                    ls.rewrite(2, Interpreters.joining(" ")), mode.name());
+            List<String> symbols = new ArrayList<>();
+            ls.rewrite(1, s -> symbols.add(s.sym()));
+            assertEquals(List.of("stem", "[", "leaf", "]", "stem"), symbols);
+        }
+    }
 }
@@ -0,0 +1,78 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Tests caching of derived generations.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class GenerationCacheTest {
+
+    @Test
+    void resumesFromCachedGeneration() {
+        IntLSystem cached = TestSystems.stochastic().cache(4, 1 << 20).build();
+        IntLSystem uncached = TestSystems.stochastic().build();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(uncached.rewrite(i, Interpreters.joining()), cached.rewrite(i, Interpreters.joining()));
+        }
+        assertEquals(1, cached.cacheStats().misses());
+        assertEquals(8, cached.cacheStats().hits());
+        assertEquals(4, cached.cacheStats().generations());
+
+        // generation 9 is cached, 10 is derived from it
+        assertEquals(uncached.rewrite(10, Interpreters.joining()), cached.rewrite(10, Interpreters.joining()));
+        assertEquals(uncached.rewrite(3, Interpreters.joining()), cached.rewrite(3, Interpreters.joining()));
+        assertEquals(10, cached.cacheStats().hits());
+    }
+
+    @Test
+    void respectsByteLimit() {
+        IntLSystem ls = TestSystems.stochastic().cache(16, 4096).build();
+        for (int i = 0; i < 12; i++) ls.rewrite(i, Interpreters.counting());
+        assertTrue(ls.cacheStats().bytes() <= 4096);
+        assertTrue(ls.cacheStats().generations() < 12);
+    }
+
+    @Test
+    void disabledByDefault() {
+        IntLSystem ls = TestSystems.stochastic().build();
+        for (int i = 0; i < 4; i++) ls.rewrite(i, Interpreters.counting());
+        assertEquals(0, ls.cacheStats().hits());
+        assertEquals(0, ls.cacheStats().misses());
+        assertEquals(0, ls.cacheStats().generations());
+    }
+
+    @Test
+    void concurrentReaders() throws Exception {
+        IntLSystem cached = TestSystems.stochastic().cache(3, 1 << 20).build();
+        IntLSystem uncached = TestSystems.stochastic().build();
+
+        String[] expected = new String[12];
+        for (int i = 0; i < expected.length; i++) expected[i] = uncached.rewrite(i, Interpreters.joining());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 64; t++) {
+                int n = (t * 7) % expected.length;
+                futures.add(executor.submit(() -> assertEquals(expected[n], cached.rewrite(n, Interpreters.joining()))));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cached.cacheStats().hits() > 0);
+    }
+}
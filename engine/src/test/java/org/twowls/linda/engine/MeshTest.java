@@ -0,0 +1,117 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Tests for three-dimensional tube meshes.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class MeshTest {
+
+    private static final MeshOptions OPTIONS = MeshOptions.of(1.0, 22.5);
+
+    private static IntLSystem bush() {
+        return LSystemBuilders.intSymbols()
+                .rule('A').out('[', '&', 'F', 'A', ']', '/', '/', '[', '&', 'F', 'A', ']', '/', '/', '[', '&', 'F', 'A', ']')
+                .axiom().out('F', 'A')
+                .mode(LSystem.Mode.STREAMING)
+                .build();
+    }
+
+    @Test
+    void sharedRings() {
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .axiom().out('F', 'F', '[', '+', 'F', ']', 'f', 'F')
+                .build();
+
+        // the branch starts from the shared ring, the moved turtle starts a new one
+        assertArrayEquals(new long[]{6 * 8, 4 * 16}, ls.rewrite(0, Interpreters.meshSize(OPTIONS)));
+        assertArrayEquals(new long[]{2 * 3, 3 * 2}, LSystemBuilders.intSymbols()
+                .axiom().out('F')
+                .build().rewrite(0, Interpreters.meshSize(OPTIONS.sides(3))));
+    }
+
+    @Test
+    void stl() {
+        IntLSystem ls = bush();
+        long[] size = ls.rewrite(4, Interpreters.meshSize(OPTIONS));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(Long.valueOf(size[1]), ls.rewrite(4, Interpreters.stl(OPTIONS, size[1], Channels.newChannel(out))));
+
+        ByteBuffer stl = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(84 + 50 * size[1], stl.limit());
+        assertEquals(size[1], stl.getInt(80));
+        // normal of the first triangle is a unit vector
+        float nx = stl.getFloat(84), ny = stl.getFloat(88), nz = stl.getFloat(92);
+        assertEquals(1.0, nx * nx + ny * ny + nz * nz, 1e-5);
+    }
+
+    @Test
+    void glb(@TempDir Path dir) throws Exception {
+        IntLSystem ls = bush();
+        long[] size = ls.rewrite(4, Interpreters.meshSize(OPTIONS));
+        Path file = dir.resolve("bush.glb");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertEquals(Long.valueOf(size[1]), ls.rewrite(4, Interpreters.glb(OPTIONS, size, channel)));
+        }
+
+        ByteBuffer glb = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x46546C67, glb.getInt(0));
+        assertEquals(2, glb.getInt(4));
+        assertEquals(glb.limit(), glb.getInt(8));
+
+        int jsonLength = glb.getInt(12);
+        assertEquals(0, jsonLength % 4);
+        String json = new String(glb.array(), 20, jsonLength, StandardCharsets.US_ASCII).trim();
+        assertTrue(json.contains("\"count\":" + size[0]), json);
+        assertTrue(json.endsWith("}"), json);
+
+        int bin = 20 + jsonLength;
+        assertEquals(size[0] * 24 + size[1] * 12, glb.getInt(bin));
+        assertEquals(0x004E4942, glb.getInt(bin + 4));
+        // the last index refers to the last vertex
+        assertEquals(size[0] - 1, glb.getInt(glb.limit() - 4));
+    }
+
+    @Test
+    void emptyGlb(@TempDir Path dir) throws Exception {
+        IntLSystem ls = LSystemBuilders.intSymbols().axiom().out('f').build();
+        Path file = dir.resolve("empty.glb");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertEquals(Long.valueOf(0L), ls.rewrite(0, Interpreters.glb(OPTIONS, new long[]{0, 0}, channel)));
+        }
+        ByteBuffer glb = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(glb.limit(), glb.getInt(8));
+        assertEquals(glb.limit(), 20 + glb.getInt(12));
+    }
+
+    @Test
+    void tropism() {
+        IntLSystem ls = LSystemBuilders.intSymbols().axiom().out('F', 'F', 'F').build();
+        long[] size = ls.rewrite(0, Interpreters.meshSize(OPTIONS));
+
+        ByteArrayOutputStream straight = new ByteArrayOutputStream(), bent = new ByteArrayOutputStream();
+        ls.rewrite(0, Interpreters.stl(OPTIONS, size[1], Channels.newChannel(straight)));
+        ls.rewrite(0, Interpreters.stl(OPTIONS.tropism(1.0, 0.0, 0.0, 0.5), size[1], Channels.newChannel(bent)));
+        assertEquals(straight.size(), bent.size());
+        assertNotEquals(ByteBuffer.wrap(straight.toByteArray()), ByteBuffer.wrap(bent.toByteArray()));
+    }
+}
@@ -0,0 +1,173 @@
+package org.twowls.linda.engine;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Tests for derivation metrics.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class MetricsTest {
+
+    /* Copies metrics that are only valid during the listener call */
+    private static final class Report {
+        final int generation;
+        final long symbols;
+        final long[][] hits;
+        final long[] misses;
+        final String[][] conditions;
+        final long contextAttempts;
+        final long contextMatches;
+
+        Report(LSystem.Metrics<?> m) {
+            generation = m.generation();
+            symbols = m.symbols();
+            hits = new long[m.rules()][];
+            misses = new long[m.rules()];
+            conditions = new String[m.rules()][];
+            for (int r = 0; r < m.rules(); r++) {
+                hits[r] = new long[m.branches(r)];
+                conditions[r] = new String[m.branches(r)];
+                for (int b = 0; b < m.branches(r); b++) {
+                    hits[r][b] = m.hits(r, b);
+                    conditions[r][b] = m.condition(r, b);
+                }
+                misses[r] = m.misses(r);
+            }
+            contextAttempts = m.contextAttempts();
+            contextMatches = m.contextMatches();
+            assertTrue(m.nanos() >= 0);
+        }
+    }
+
+    @Test
+    void derivations() {
+        for (LSystem.Mode mode : new LSystem.Mode[]{LSystem.Mode.ITERATIVE, LSystem.Mode.PARALLEL}) {
+            List<Report> reports = new ArrayList<>();
+            IntLSystem ls = TestSystems.algae()
+                    .mode(mode)
+                    .listener(m -> reports.add(new Report(m)))
+                    .build();
+
+            assertEquals(Long.valueOf(196418L), ls.rewrite(25, Interpreters.counting()));
+            assertEquals(25, reports.size());
+            long a = 1, b = 0;
+            for (int g = 1; g <= 25; g++) {
+                Report report = reports.get(g - 1);
+                assertEquals(g, report.generation);
+                assertEquals(a, report.hits[0][0], mode + " generation " + g);
+                assertEquals(b, report.hits[1][0], mode + " generation " + g);
+                long t = a; a = a + b; b = t;
+                assertEquals(a + b, report.symbols);
+                assertEquals("always", report.conditions[0][0]);
+            }
+        }
+    }
+
+    @Test
+    void branches() {
+        List<Report> reports = new ArrayList<>();
+        // @formatter:off
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule('b')
+                    .follows('a').skipping('+').out('a', '+')
+                    .otherwise().out('b', 'b')
+                .rule('a').precedes('b').out('b', 'a')
+                .rule('F')
+                    .probably(0.25).out('F', 'F')
+                    .not().when(s -> s.seq() % 2 == 0).and().probably(0.5).out('F')
+                .axiom().out('a', 'b', 'b', 'a', 'F', 'F', 'F', 'F')
+                .listener(m -> reports.add(new Report(m)))
+                .build();
+        // @formatter:on
+
+        ls.rewrite(1, Interpreters.counting());
+        Report report = reports.get(0);
+        assertEquals("follows " + (int) 'a', report.conditions[0][0]);
+        assertEquals("otherwise", report.conditions[0][1]);
+        assertEquals("precedes " + (int) 'b', report.conditions[1][0]);
+        assertEquals("probably 0.25", report.conditions[2][0]);
+        assertEquals("not when and probably 0.5", report.conditions[2][1]);
+
+        assertEquals(1, report.hits[0][0]);
+        assertEquals(1, report.hits[0][1]);
+        assertEquals(1, report.hits[1][0]);
+        assertEquals(1, report.misses[1]);
+        assertEquals(4, report.hits[2][0] + report.hits[2][1] + report.misses[2]);
+        // both symbols b and a evaluate a context condition
+        assertEquals(4, report.contextAttempts);
+        assertEquals(2, report.contextMatches);
+    }
+
+    @Test
+    void streaming() {
+        List<Report> reports = new ArrayList<>();
+        IntLSystem ls = TestSystems.algae()
+                .mode(LSystem.Mode.STREAMING)
+                .listener(m -> reports.add(new Report(m)))
+                .build();
+
+        ls.rewrite(10, Interpreters.counting());
+        assertEquals(1, reports.size());
+        assertEquals(10, reports.get(0).generation);
+        assertEquals(144, reports.get(0).symbols);
+        // every symbol of generations 0..9 has been rewritten
+        assertEquals(231, reports.get(0).hits[0][0] + reports.get(0).hits[1][0]);
+    }
+
+    @Test
+    void stringSymbols() {
+        List<Report> reports = new ArrayList<>();
+        LSystem<String> ls = LSystemBuilders.stringSymbols()
+                .rule("A").out("A").out("B")
+                .axiom().out("A").out("C")
+                .cache(4, Long.MAX_VALUE)
+                .listener(m -> reports.add(new Report(m)))
+                .build();
+
+        ls.rewrite(3, Interpreters.counting());
+        ls.rewrite(5, Interpreters.counting());
+        // generations taken from the cache are not reported
+        assertEquals(5, reports.size());
+        assertEquals(5, reports.get(4).generation);
+        assertEquals(7, reports.get(4).symbols);
+    }
+
+    @Test
+    void flightRecorder(@TempDir Path dir) throws Exception {
+        IntLSystem ls = TestSystems.algae()
+                .listener(LSystem.Listener.flightRecorder())
+                .build();
+
+        Path file = dir.resolve("rewrite.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.twowls.linda.Derivation");
+            recording.enable("org.twowls.linda.RuleHits");
+            recording.start();
+            ls.rewrite(5, Interpreters.counting());
+            recording.stop();
+            recording.dump(file);
+        }
+
+        long derivations = 0, hits = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            String name = event.getEventType().getName();
+            if (name.equals("org.twowls.linda.Derivation")) derivations++;
+            if (name.equals("org.twowls.linda.RuleHits")) hits += event.getLong("hits");
+        }
+        assertEquals(5, derivations);
+        assertEquals(1 + 2 + 3 + 5 + 8, hits);
+    }
+}
@@ -0,0 +1,63 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * <p>Tests generations kept in memory-mapped files.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class OffHeapTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sameOutput() throws IOException {
+        IntLSystem heap = TestSystems.algae().build();
+        IntLSystem offHeap = TestSystems.algae().offHeap(0, directory).cache(4, 1 << 20).build();
+        for (int i = 0; i <= 20; i++) {
+            assertEquals(heap.rewrite(i, Interpreters.joining()), offHeap.rewrite(i, Interpreters.joining()));
+        }
+        // generations kept off-heap are not cached
+        assertEquals(0, offHeap.cacheStats().generations());
+
+        IntLSystem stochasticHeap = TestSystems.stochastic().build();
+        IntLSystem stochasticOffHeap = TestSystems.stochastic().offHeap(1 << 10, directory).build();
+        for (int i = 0; i <= 12; i++) {
+            assertEquals(stochasticHeap.rewrite(i, Interpreters.joining()),
+                    stochasticOffHeap.rewrite(i, Interpreters.joining()));
+        }
+        assertEquals(0, files());
+    }
+
+    @Test
+    void filesDeletedOnFailure() throws IOException {
+        IntLSystem ls = TestSystems.algae().offHeap(0, directory).build();
+        assertThrows(IllegalStateException.class, () -> ls.rewrite(10, state -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(0, files());
+    }
+
+    @Test
+    void thresholdValidated() {
+        assertThrows(IllegalArgumentException.class, () -> TestSystems.algae().offHeap(-1, directory));
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Tests bit-packed storage of generations.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class PackedWordTest {
+
+    @Test
+    void packingWidth() {
+        assertEquals(2, PackedWord.bits(1));
+        assertEquals(2, PackedWord.bits(4));
+        assertEquals(4, PackedWord.bits(5));
+        assertEquals(8, PackedWord.bits(256));
+        assertEquals(0, PackedWord.bits(257));
+    }
+
+    @Test
+    void appendsAcrossWords() {
+        for (int bits : new int[] {2, 4, 8}) {
+            int[] production = new int[5];
+            for (int i = 0; i < production.length; i++) production[i] = (i * 3 + 1) & ((1 << bits) - 1);
+            long[] patterns = PackedWord.patterns(bits, production);
+
+            PackedWord word = new PackedWord(bits, 1);
+            for (int round = 0; round < 2; round++) {
+                // the second round reuses storage holding stale bits
+                word.clear();
+                for (int k = 0; k < 100; k++) {
+                    word.append(k & ((1 << bits) - 1), 1);
+                    word.append(patterns, production.length);
+                }
+                assertEquals(600, word.size);
+                for (int k = 0; k < 100; k++) {
+                    assertEquals(k & ((1 << bits) - 1), word.get(k * 6L), "bits " + bits);
+                    for (int i = 0; i < production.length; i++) {
+                        assertEquals(production[i], word.get(k * 6L + 1 + i), "bits " + bits);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void longProductions() {
+        int[] production = new int[100];
+        for (int i = 0; i < production.length; i++) production[i] = i % 3;
+        PackedWord word = new PackedWord(2, 0);
+        word.append(1, 1);
+        word.append(PackedWord.patterns(2, production), production.length);
+        int[] unpacked = new int[101];
+        word.unpack(0, unpacked, 101);
+        assertEquals(1, unpacked[0]);
+        for (int i = 0; i < production.length; i++) assertEquals(production[i], unpacked[i + 1]);
+    }
+}
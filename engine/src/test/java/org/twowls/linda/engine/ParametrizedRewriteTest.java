@@ -2,6 +2,9 @@ package org.twowls.linda.engine;
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 /**
  * <p>Tests for parametrized L-Systems.</p>
  * @author Dmitry Chubarov
@@ -48,5 +51,137 @@ class ParametrizedRewriteTest {
         //  9:  C     C      B(4)   B(8)   A(1,0)
         // 10:  C     C      B(3)   B(7)   A(2,1)
         // ...
+
+        assertEquals("B(2) A(4,4)", ls.rewrite(0, dumping()));
+        assertEquals("C B(2) A(4,3)", ls.rewrite(3, dumping()));
+        assertEquals("C C B(5) A(8,7)", ls.rewrite(8, dumping()));
+        assertEquals("C C B(3) B(7) A(2,1)", ls.rewrite(10, dumping()));
+    }
+
+    @Test
+    void testIntSymbols() {
+        for (LSystem.Mode mode : LSystem.Mode.values()) {
+            // @formatter:off
+            IntLSystem ls = LSystemBuilders.intSymbols()
+                    .rule('A').def("x", "y")
+                        .when(s -> s.var("y").intVal() <= 3)
+                            .out('A')
+                                .fun(s -> s.wrap(s.var("x").intVal() * 2))
+                                .fun(s -> s.wrap(s.var("x").intVal() + s.var("y").intVal()))
+                        .otherwise()
+                            .out('B')
+                                .var("x")
+                            .out('A')
+                                .fun(s -> s.wrap(s.var("x").intVal() / s.var("y").intVal()))
+                                .val(0)
+                    .rule('B').def("x")
+                        .when(s -> s.var("x").intVal() >= 1)
+                            .out('B')
+                                .fun(s -> s.wrap(s.var("x").intVal() - 1))
+                        .otherwise()
+                            .out('C')
+                    .axiom()
+                        .out('B').val(2)
+                        .out('A').val(4).val(4)
+                    .mode(mode)
+                    .build();
+            // @formatter:on
+
+            assertEquals("B(2) A(4,4)", ls.rewrite(0, dumping()), mode.name());
+            assertEquals("C B(2) A(4,3)", ls.rewrite(3, dumping()), mode.name());
+            assertEquals("C C B(3) B(7) A(2,1)", ls.rewrite(10, dumping()), mode.name());
+        }
+    }
+
+    @Test
+    void testMixedValueKinds() {
+        // @formatter:off
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule('A').def("x", "b")
+                    .out('A')
+                        .fun(s -> s.wrap(s.var("x").doubleVal() / 2))
+                        .fun(s -> s.wrap(!s.var("b").booleanVal()))
+                    .out('C')
+                .axiom()
+                    .out('C')
+                    .out('A').val(1.0).val(true)
+                .build();
+        // @formatter:on
+
+        assertEquals("C A(0.25,true) C C", ls.rewrite(2, dumping("x", "b")));
+    }
+
+    @Test
+    void testSlots() {
+        LSystem.State.Slot x = LSystem.State.Slot.of("x");
+        LSystem.State.Slot y = LSystem.State.Slot.of("y");
+
+        // @formatter:off
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule('A').def("x", "y")
+                    .when(s -> y.intVal(s) <= 3)
+                        .out('A')
+                            .fun(s -> s.wrap(s.intVar(0) * 2))
+                            .fun(s -> s.wrap(x.intVal(s) + s.intVar(1)))
+                    .otherwise()
+                        .out('B')
+                            .val(0)
+                            .var("x")
+                        .out('A')
+                            .fun(s -> s.wrap(s.intVar(0) / s.intVar(1)))
+                            .val(0)
+                .rule('B').def("y", "x")
+                    .when(s -> x.intVal(s) >= 1)
+                        .out('B')
+                            .val(0)
+                            .fun(s -> s.wrap(x.doubleVal(s) - 1))
+                    .otherwise()
+                        .out('C')
+                .axiom()
+                    .out('B').val(0).val(2)
+                    .out('A').val(4).val(4)
+                .build();
+        // @formatter:on
+
+        // x has different slots in A and B
+        assertEquals("C C B(3.0) B(7.0) A(2,1)", ls.rewrite(10, dumping()));
+    }
+
+    @Test
+    void testUnknownVariables() {
+        assertThrows(IllegalStateException.class, () -> LSystemBuilders.intSymbols()
+                .rule('A').def("x").out('A').var("y"));
+
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule('A').def("x").when(s -> s.intVar(1) > 0).out('B')
+                .axiom().out('A').val(1)
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> ls.rewrite(1, Interpreters.joining()));
+    }
+
+    private static <S> Interpreter<S, String> dumping() {
+        return dumping("x", "y");
+    }
+
+    /* Prints each symbol followed by values of its variables, A has given variables and B has just x */
+    private static <S> Interpreter<S, String> dumping(String... names) {
+        return new Interpreter<>() {
+            final StringBuilder sb = new StringBuilder();
+
+            @Override
+            public void interpret(LSystem.State<S> state) {
+                Object sym = state.sym();
+                String name = (sym instanceof Integer ? new String(Character.toChars((Integer) sym)) : sym.toString());
+                sb.append(sb.length() > 0 ? " " : "").append(name);
+                String[] vars = ("A".equals(name) ? names : "B".equals(name) ? new String[]{"x"} : new String[0]);
+                for (int i = 0; i < vars.length; i++) sb.append(i == 0 ? '(' : ',').append(state.var(vars[i]));
+                if (vars.length > 0) sb.append(')');
+            }
+
+            @Override
+            public String getResult() {
+                return sb.toString();
+            }
+        };
     }
 }
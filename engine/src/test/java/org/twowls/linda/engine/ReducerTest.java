@@ -0,0 +1,100 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Tests reduction of generations.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class ReducerTest {
+
+    /* Sums up the first parameter of every symbol */
+    private static final Reducer<Integer, Long> SUM = new Reducer<>() {
+        @Override
+        public Long identity() {
+            return 0L;
+        }
+
+        @Override
+        public Long accumulate(Long result, LSystem.State<Integer> state) {
+            return result + (state.arity() > 0 ? state.var(0).intVal() : 0);
+        }
+
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+    };
+
+    /* Hashes symbols in order, so that a hash of two sequences is combined from their own hashes */
+    private static final Reducer<Integer, long[]> HASH = new Reducer<>() {
+        @Override
+        public long[] identity() {
+            return new long[] {0L, 1L};
+        }
+
+        @Override
+        public long[] accumulate(long[] result, LSystem.State<Integer> state) {
+            return new long[] {result[0] * 31L + state.sym(), result[1] * 31L};
+        }
+
+        @Override
+        public long[] combine(long[] left, long[] right) {
+            return new long[] {left[0] * right[1] + right[0], left[1] * right[1]};
+        }
+    };
+
+    private static long hash(String symbols) {
+        return symbols.codePoints().asLongStream().reduce(0L, (h, s) -> h * 31L + s);
+    }
+
+    @Test
+    void memoized() {
+        IntLSystem ls = TestSystems.algae().build();
+        for (int n = 0; n <= 12; n++) {
+            assertEquals(hash(ls.rewrite(n, Interpreters.joining())), ls.reduce(n, HASH)[0]);
+        }
+        // far beyond what can be rewritten
+        assertEquals(ls.length(80), BigInteger.valueOf(ls.reduce(80, Reducers.counting())));
+        assertEquals(ls.counts(80).get((int) 'b'), BigInteger.valueOf(ls.reduce(80, Reducers.counting((int) 'b'))));
+    }
+
+    @Test
+    void parallel() {
+        IntLSystem sequential = TestSystems.parametric(16).build();
+        IntLSystem parallel = TestSystems.parametric(16).mode(LSystem.Mode.PARALLEL).build();
+        for (int n : new int[] {0, 5, 17}) {
+            assertEquals(sequential.rewrite(n, Interpreters.counting()), parallel.reduce(n, Reducers.counting()));
+            assertArrayEquals(sequential.reduce(n, HASH), parallel.reduce(n, HASH));
+            assertEquals(sequential.reduce(n, SUM), parallel.reduce(n, SUM));
+        }
+        IntLSystem streaming = TestSystems.parametric(16).mode(LSystem.Mode.STREAMING).build();
+        assertEquals(streaming.reduce(17, SUM), parallel.reduce(17, SUM));
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        IntLSystem ls = TestSystems.parametric(16).mode(LSystem.Mode.PARALLEL).build();
+        long expected = hash(ls.rewrite(12, Interpreters.joining()));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) futures.add(executor.submit(() -> ls.reduce(12, HASH)));
+            for (Future<long[]> f : futures) assertEquals(expected, f.get()[0]);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
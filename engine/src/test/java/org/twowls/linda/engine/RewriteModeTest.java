@@ -0,0 +1,252 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>Tests that all rewrite modes produce the same result.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class RewriteModeTest {
+
+    private static IntLSystem contextSensitive(LSystem.Mode mode) {
+        return LSystemBuilders.intSymbols()
+                .rule('b').follows('a').out('a').otherwise().out('b')
+                .rule('a').precedes('b').out('b')
+                .axiom().out('a', 'b', 'b', 'b', 'b')
+                .mode(mode)
+                .build();
+    }
+
+    private static IntLSystem growingContextSensitive(LSystem.Mode mode) {
+        // @formatter:off
+        return LSystemBuilders.intSymbols()
+                .rule('b')
+                    .follows('a').skipping('+').out('a', '+')
+                    .otherwise().out('b', 'b')
+                .rule('a').precedes('b').out('b', 'a')
+                .axiom().out('a', 'b', 'b')
+                .mode(mode)
+                .build();
+        // @formatter:on
+    }
+
+    private static void assertSameOutput(Function<LSystem.Mode, IntLSystem> factory, int derivations) {
+        assertSameOutput(factory, LSystem.Mode.STREAMING, derivations);
+    }
+
+    private static void assertSameOutput(Function<LSystem.Mode, IntLSystem> factory, LSystem.Mode mode, int derivations) {
+        IntLSystem iterative = factory.apply(LSystem.Mode.ITERATIVE);
+        IntLSystem other = factory.apply(mode);
+        for (int i = 0; i <= derivations; i++) {
+            assertEquals(iterative.rewrite(i, dumping()), other.rewrite(i, dumping()), "derivation " + i);
+        }
+    }
+
+    private static Interpreter<Integer, String> dumping() {
+        return new Interpreter<>() {
+            final StringBuilder sb = new StringBuilder();
+
+            @Override
+            public void interpret(LSystem.State<Integer> state) {
+                sb.appendCodePoint(state.sym());
+                if (state.is((int) 'A')) sb.append('(').append(state.var("n")).append(')');
+            }
+
+            @Override
+            public String getResult() {
+                return sb.toString();
+            }
+        };
+    }
+
+    @Test
+    void streamingAlgae() {
+        assertSameOutput(m -> TestSystems.algae().mode(m).build(), 12);
+        IntLSystem ls = TestSystems.algae().mode(LSystem.Mode.STREAMING).build();
+        assertEquals(Long.valueOf(2178309L), ls.rewrite(30, Interpreters.counting()));
+    }
+
+    @Test
+    void streamingStochastic() {
+        assertSameOutput(m -> TestSystems.stochastic().mode(m).build(), 6);
+    }
+
+    @Test
+    void streamingParametric() {
+        assertSameOutput(m -> TestSystems.parametric(6).mode(m).build(), 8);
+    }
+
+    @Test
+    void parallel() {
+        assertSameOutput(m -> TestSystems.algae().mode(m).build(), LSystem.Mode.PARALLEL, 22);
+        assertSameOutput(m -> TestSystems.stochastic().mode(m).build(), LSystem.Mode.PARALLEL, 10);
+        assertSameOutput(m -> TestSystems.parametric(16).mode(m).build(), LSystem.Mode.PARALLEL, 17);
+        assertSameOutput(RewriteModeTest::growingContextSensitive, LSystem.Mode.PARALLEL, 14);
+    }
+
+    @Test
+    void seqInConditions() {
+        // conditions see the number of symbols produced before the current symbol is rewritten
+        assertEquals("aabb", counted(LSystem.Mode.ITERATIVE, false).rewrite(1, Interpreters.joining()));
+        assertEquals("aabbc", counted(LSystem.Mode.ITERATIVE, true).rewrite(1, Interpreters.joining()));
+        for (boolean parametric : new boolean[] {false, true}) {
+            assertSameOutput(m -> counted(m, parametric), 6);
+        }
+    }
+
+    private static IntLSystem counted(LSystem.Mode mode, boolean parametric) {
+        IntLSystem.Builder builder = LSystemBuilders.intSymbols()
+                .rule('a').when(s -> s.seq() < 2).out('a', 'a').otherwise().out('b')
+                .axiom().out('a', 'a', 'a');
+        // a parameter keeps generations from being packed
+        if (parametric) builder.out('c').val(1);
+        return builder.mode(mode).build();
+    }
+
+    @Test
+    void packedAlphabets() {
+        // 2, 4 and 8 bits per symbol, then too many symbols to be packed
+        for (int n : new int[] {3, 16, 17, 256, 300}) {
+            assertSameOutput(m -> cycle(m, n), 12);
+        }
+    }
+
+    private static IntLSystem cycle(LSystem.Mode mode, int n) {
+        IntLSystem.Builder builder = LSystemBuilders.intSymbols();
+        for (int i = 0; i < n; i++) builder.rule(1000 + i).out(1000 + i, 1000 + (i * 7 + 1) % n);
+        return builder.axiom().out(1000).mode(mode).build();
+    }
+
+    @Test
+    void fusedDerivations() {
+        // a listener expects every generation, so it turns fusion off
+        for (LSystem.Mode mode : new LSystem.Mode[] {LSystem.Mode.ITERATIVE, LSystem.Mode.PARALLEL}) {
+            IntLSystem fused = koch().mode(mode).build();
+            IntLSystem stepwise = koch().mode(mode).listener(metrics -> {}).build();
+            for (int i = 0; i <= 7; i++) {
+                assertEquals(stepwise.rewrite(i, Interpreters.joining()), fused.rewrite(i, Interpreters.joining()));
+            }
+            IntLSystem algae = TestSystems.algae().mode(mode).build();
+            assertEquals(algae.length(27).longValue(), (long) algae.rewrite(27, Interpreters.counting()));
+        }
+    }
+
+    private static IntLSystem.Builder koch() {
+        // @formatter:off
+        return LSystemBuilders.intSymbols()
+                .rule('F').out('F', '+', 'F', '-', '-', 'F', '+', 'F')
+                .rule('X').out()
+                .rule('Y').out('Y', 'X', 'a')
+                .rule('a').out('a', 'b')
+                .rule('b').out('a')
+                .axiom().out('Y', 'F', '-', '-', 'F');
+        // @formatter:on
+    }
+
+    @Test
+    void bracketedContext() {
+        // @formatter:off
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .rule('a').follows('b').out('x')
+                .rule('c').precedes('d').out('y')
+                .axiom().out('b', '[', 'a', ']', '[', '+', 'c', ']', 'a', '[', 'c', ']', 'c', '[', 'e', ']', 'd')
+                .brackets('[', ']')
+                .build();
+        // @formatter:on
+
+        // a branch start follows the symbol before the branch, sibling branches are jumped over,
+        // '+' is not skipped, a branch end precedes nothing
+        assertEquals("b[x][+c]x[c]y[e]d", ls.rewrite(1, Interpreters.joining()));
+    }
+
+    @Test
+    void parallelBracketedContext() {
+        assertSameOutput(RewriteModeTest::signal, LSystem.Mode.PARALLEL, 9);
+    }
+
+    private static IntLSystem signal(LSystem.Mode mode) {
+        // @formatter:off
+        return LSystemBuilders.intSymbols()
+                .rule('b')
+                    .follows('a').skipping('+').out('a')
+                    .otherwise().out('b', '[', '+', 'b', ']', 'b')
+                .rule('a').out('c')
+                .axiom().out('a', 'b')
+                .brackets('[', ']')
+                .mode(mode)
+                .build();
+        // @formatter:on
+    }
+
+    @Test
+    void streamingFallsBackForContextSensitive() {
+        assertSameOutput(RewriteModeTest::contextSensitive, 4);
+        assertEquals("bbbba", contextSensitive(LSystem.Mode.STREAMING).rewrite(4, Interpreters.joining()));
+    }
+
+    @Test
+    void batchInterpretation() {
+        for (LSystem.Mode mode : LSystem.Mode.values()) {
+            IntLSystem ls = TestSystems.parametric(16).mode(mode).build();
+            assertEquals(ls.rewrite(17, dumping()), ls.rewrite(17, batchDumping()), mode.name());
+            assertEquals(ls.rewrite(17, perSymbol(Interpreters.joining())), ls.rewrite(17, Interpreters.joining()));
+            assertEquals(ls.rewrite(5, perSymbol(Interpreters.counting())), ls.rewrite(5, Interpreters.counting()));
+            assertEquals(ls.rewrite(5, perSymbol(Interpreters.joining(" "))), ls.rewrite(5, Interpreters.joining(" ")));
+        }
+    }
+
+    private static Interpreter<Integer, String> batchDumping() {
+        return new Interpreter<>() {
+            final StringBuilder sb = new StringBuilder();
+
+            @Override
+            public void interpret(LSystem.State<Integer> state) {
+                throw new AssertionError("Batch interpretation expected");
+            }
+
+            @Override
+            public boolean isBatching() {
+                return true;
+            }
+
+            @Override
+            public void interpretBatch(int[] symbols, int from, int to, Params params) {
+                for (int i = from; i < to; i++) {
+                    sb.appendCodePoint(symbols[i]);
+                    if (symbols[i] == 'A') sb.append('(').append(params.intVal(i, 0)).append(')');
+                }
+            }
+
+            @Override
+            public String getResult() {
+                return sb.toString();
+            }
+        };
+    }
+
+    /* Hides batch interpretation of an interpreter */
+    private static <R> Interpreter<Integer, R> perSymbol(Interpreter<Integer, R> interpreter) {
+        return new Interpreter<>() {
+            @Override
+            public void interpret(LSystem.State<Integer> state) {
+                interpreter.interpret(state);
+            }
+
+            @Override
+            public void before(LSystem.State<Integer> state) {
+                interpreter.before(state);
+            }
+
+            @Override
+            public R getResult() {
+                return interpreter.getResult();
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * <p>Tests random access to generations without rewriting them.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class SliceTest {
+
+    private static StringLSystem koch() {
+        // @formatter:off
+        return LSystemBuilders.stringSymbols()
+                .rule("F").out("F", "+", "F", "-", "-", "F", "+", "F")
+                .rule("X").out()
+                .axiom().out("X", "F", "-", "-", "F", "X", "-", "-", "F")
+                .build();
+        // @formatter:on
+    }
+
+    @Test
+    void symbolAt() {
+        StringLSystem ls = koch();
+        for (int n = 0; n <= 4; n++) {
+            String word = ls.rewrite(n, Interpreters.joining());
+            for (int i = 0; i < word.length(); i++) {
+                assertEquals(String.valueOf(word.charAt(i)), ls.symbolAt(n, i), "derivation " + n + ", index " + i);
+            }
+        }
+    }
+
+    @Test
+    void slice() {
+        IntLSystem ls = TestSystems.algae().build();
+        String word = ls.rewrite(20, Interpreters.joining());
+        int[][] ranges = {{0, 0}, {0, 1}, {5, 9000}, {10945, word.length()}, {4095, 4097}};
+        for (int[] r : ranges) {
+            assertEquals(word.substring(r[0], r[1]), ls.slice(20, r[0], r[1], Interpreters.joining()));
+        }
+
+        // positions are those within the whole generation
+        long[] first = new long[] {-1};
+        ls.slice(20, 100, 200, new Interpreter<Integer, Void>() {
+            @Override
+            public void interpret(LSystem.State<Integer> state) {
+                if (first[0] < 0) first[0] = state.seq();
+            }
+        });
+        assertEquals(100L, first[0]);
+    }
+
+    @Test
+    void hugeGeneration() {
+        // the length of generation 200 exceeds the range of long
+        IntLSystem ls = TestSystems.algae().build();
+        assertEquals(1, ls.length(200).compareTo(BigInteger.valueOf(Long.MAX_VALUE)));
+        String tail = ls.slice(200, 1_000_000_000_000_000L, 1_000_000_000_000_010L, Interpreters.joining());
+        assertEquals(10, tail.length());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(tail.charAt(i), (int) ls.symbolAt(200, 1_000_000_000_000_000L + i));
+        }
+
+        // the same position of the infinite Fibonacci word is reached by every long enough generation
+        assertEquals(ls.symbolAt(100, 1_000_000_000L), ls.symbolAt(101, 1_000_000_000L));
+    }
+
+    @Test
+    void unsupported() {
+        IntLSystem ls = TestSystems.algae().build();
+        assertThrows(IndexOutOfBoundsException.class, () -> ls.symbolAt(3, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> ls.slice(3, 2, 1, Interpreters.joining()));
+        assertThrows(IllegalArgumentException.class, () -> ls.symbolAt(-1, 0));
+
+        // @formatter:off
+        IntLSystem stochastic = LSystemBuilders.intSymbols()
+                .rule('F').probably(0.5).out('F', 'F').otherwise().out('F')
+                .axiom().out('F')
+                .build();
+        IntLSystem parametric = LSystemBuilders.intSymbols()
+                .rule('A').def("n").out('A').fun(s -> s.wrap(s.var("n").intVal() + 1))
+                .axiom().out('A').val(0)
+                .build();
+        // @formatter:on
+        assertThrows(UnsupportedOperationException.class, () -> stochastic.symbolAt(1, 0));
+        assertThrows(UnsupportedOperationException.class, () -> parametric.slice(1, 0, 1, Interpreters.joining()));
+    }
+}
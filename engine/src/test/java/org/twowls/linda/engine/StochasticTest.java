@@ -0,0 +1,89 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * <p>Tests for stochastic branch selection.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class StochasticTest {
+
+    private static IntLSystem.Builder plant(long seed, LSystem.Mode mode) {
+        // @formatter:off
+        return LSystemBuilders.intSymbols()
+                .rule('F')
+                    .probably(0.2).out('F', '[', '+', 'F', ']', 'F')
+                    .probably(0.3).out('F', '[', '-', 'F', ']', 'F')
+                    .otherwise().out('F', 'F')
+                .axiom().out('F')
+                .seed(seed)
+                .mode(mode);
+        // @formatter:on
+    }
+
+    @Test
+    void aliasTableDistribution() {
+        AliasTable table = new AliasTable(new double[]{0.2, 0.3, 0.5, 1e-3}, new int[]{0, 1, 2, -1});
+        int n = 1_000_000;
+        long[] counts = new long[4];
+        for (int i = 0; i < n; i++) {
+            int outcome = table.sample((i + 0.5) / n);
+            counts[outcome >= 0 ? outcome : 3]++;
+        }
+        double total = 1.001;
+        assertEquals(0.2 / total, (double) counts[0] / n, 1e-5);
+        assertEquals(0.3 / total, (double) counts[1] / n, 1e-5);
+        assertEquals(0.5 / total, (double) counts[2] / n, 1e-5);
+        assertEquals(1e-3 / total, (double) counts[3] / n, 1e-5);
+    }
+
+    @Test
+    void aliasTableOnlyForPureProbabilities() {
+        IntSymbolsBuilder builder = new IntSymbolsBuilder();
+        // @formatter:off
+        builder.rule('a').probably(0.5).out('b')
+               .rule('b').probably(0.5).out('a').otherwise().out('b')
+               .rule('c').probably(0.5).out('a').when(s -> true).out('b')
+               .rule('d').not().probably(0.5).out('a')
+               .rule('e').out('a')
+               .axiom().out('a');
+        // @formatter:on
+        Rule<?>[] rules = builder.rules().toArray(new Rule<?>[0]);
+        assertNotNull(AliasTable.of(rules[0]));
+        assertNotNull(AliasTable.of(rules[1]));
+        assertNull(AliasTable.of(rules[2]));
+        assertNull(AliasTable.of(rules[3]));
+        assertNull(AliasTable.of(rules[4]));
+    }
+
+    @Test
+    void reproducibleWithSeed() {
+        String word = plant(42L, LSystem.Mode.ITERATIVE).build().rewrite(9, Interpreters.joining());
+        assertEquals(word, plant(42L, LSystem.Mode.PARALLEL).build().rewrite(9, Interpreters.joining()));
+        assertEquals(word, plant(42L, LSystem.Mode.STREAMING).build().rewrite(9, Interpreters.joining()));
+        assertNotEquals(word, plant(43L, LSystem.Mode.ITERATIVE).build().rewrite(9, Interpreters.joining()));
+    }
+
+    @Test
+    void branchFrequencies() {
+        long[] hits = new long[3];
+        plant(7L, LSystem.Mode.ITERATIVE)
+                .listener(m -> {
+                    for (int b = 0; b < 3; b++) hits[b] += m.hits(0, b);
+                })
+                .build()
+                .rewrite(10, Interpreters.counting());
+
+        double total = hits[0] + hits[1] + hits[2];
+        assertEquals(0.2, hits[0] / total, 0.01);
+        assertEquals(0.3, hits[1] / total, 0.01);
+        assertEquals(0.5, hits[2] / total, 0.01);
+    }
+}
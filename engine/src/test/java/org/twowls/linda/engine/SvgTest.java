@@ -0,0 +1,50 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>Tests for streaming SVG output.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class SvgTest {
+
+    @Test
+    void square() {
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .axiom().out('F', '+', 'F', '+', 'F', 'f', '+', 'F')
+                .build();
+
+        double[] bounds = ls.rewrite(0, Interpreters.bounds(1.5, 90.0));
+        assertArrayEquals(new double[]{-1.5, -1.5, 0.0, 1.5}, bounds, 1e-9);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(Long.valueOf(4L), ls.rewrite(0, Interpreters.svg(1.5, 90.0, bounds, Channels.newChannel(out))));
+        String svg = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+        assertTrue(svg.contains("viewBox=\"-1.503 -1.503 1.506 3.006\""), svg);
+        assertTrue(svg.contains("<path d=\"M0 0L0 -1.5L-1.5 -1.5L-1.5 0M-1.5 1.5L0 1.5\"/>"), svg);
+        assertTrue(svg.endsWith("</svg>\n"), svg);
+    }
+
+    @Test
+    void splitsLongPaths() {
+        IntLSystem ls = TestSystems.plant().mode(LSystem.Mode.STREAMING).build();
+        double[] bounds = ls.rewrite(7, Interpreters.bounds(1.0, 25.0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long segments = ls.rewrite(7, Interpreters.svg(1.0, 25.0, bounds, Channels.newChannel(out)));
+
+        String svg = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+        assertEquals(ls.rewrite(7, Interpreters.turtle(1.0, 25.0)).remaining() / 4, segments);
+        assertEquals((segments + 4095) / 4096, svg.split("<path ", -1).length - 1);
+        assertEquals(segments, svg.chars().filter(c -> c == 'L').count());
+    }
+}
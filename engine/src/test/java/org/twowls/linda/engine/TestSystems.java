@@ -0,0 +1,65 @@
+package org.twowls.linda.engine;
+
+/**
+ * <p>L-Systems shared by tests. Builders are returned unfinished, so that tests may select
+ * a rewrite mode, a cache or a listener before building.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+final class TestSystems {
+
+    /**
+     * @return Lindenmayer's algae, generation {@code n} has {@code fib(n + 2)} symbols.
+     */
+    static IntLSystem.Builder algae() {
+        return LSystemBuilders.intSymbols()
+                .rule('a').out('a', 'b')
+                .rule('b').out('a')
+                .axiom().out('a');
+    }
+
+    /**
+     * @return a branching system picking one of two productions at random.
+     */
+    static IntLSystem.Builder stochastic() {
+        // @formatter:off
+        return LSystemBuilders.intSymbols()
+                .rule('F')
+                    .probably(0.4).out('F', '[', '+', 'F', ']')
+                    .otherwise().out('F', 'F')
+                .axiom().out('F');
+        // @formatter:on
+    }
+
+    /**
+     * @return a bracketed plant drawn by turtle interpreters.
+     */
+    static IntLSystem.Builder plant() {
+        return LSystemBuilders.intSymbols()
+                .rule('X').out('F', '[', '+', 'X', ']', '[', '-', 'X', ']', 'F', 'X')
+                .rule('F').out('F', 'F')
+                .axiom().out('X');
+    }
+
+    /**
+     * @param depth the parameter of the axiom, generation {@code n <= depth + 1} has {@code 2^(n + 1) - 1} symbols.
+     * @return a parametric system splitting {@code A(n)} into {@code A(n - 1) B(seq) A(n - 1)} until {@code n} is zero.
+     */
+    static IntLSystem.Builder parametric(int depth) {
+        // @formatter:off
+        return LSystemBuilders.intSymbols()
+                .rule('A').def("n")
+                    .when(s -> s.var("n").intVal() > 0)
+                        .out('A').fun(s -> s.wrap(s.var("n").intVal() - 1))
+                        .out('B').fun(s -> s.wrap(s.seq()))
+                        .out('A').fun(s -> s.wrap(s.var("n").intVal() - 1))
+                    .otherwise()
+                        .out('C')
+                .axiom().out('A').val(depth);
+        // @formatter:on
+    }
+
+    /* Prevents instantiation */
+    private TestSystems() {}
+}
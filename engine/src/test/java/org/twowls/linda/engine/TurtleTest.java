@@ -0,0 +1,74 @@
+package org.twowls.linda.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * <p>Tests for the turtle graphics interpreter.</p>
+ *
+ * @author Dmitry Chubarov
+ * @since 1.0.0
+ */
+class TurtleTest {
+
+    private static float[] toArray(FloatBuffer buffer) {
+        float[] result = new float[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
+    @Test
+    void square() {
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .axiom().out('F', '+', 'F', '+', 'F', '+', 'F')
+                .build();
+
+        float[] v = toArray(ls.rewrite(0, Interpreters.turtle(1.0, 90.0)));
+        assertArrayEquals(new float[]{0, 0, 0, 1, 0, 1, -1, 1, -1, 1, -1, 0, -1, 0, 0, 0}, v, 1e-6f);
+    }
+
+    @Test
+    void branchesAndParameters() {
+        // @formatter:off
+        IntLSystem ls = LSystemBuilders.intSymbols()
+                .axiom()
+                    .out('F').val(2.0)
+                    .out('[').out('-').val(90).out('F').out(']')
+                    .out('f').out('F')
+                .build();
+        // @formatter:on
+
+        float[] v = toArray(ls.rewrite(0, Interpreters.turtle(1.0, 45.0)));
+        assertArrayEquals(new float[]{0, 0, 0, 2, 0, 2, 1, 2, 0, 3, 0, 4}, v, 1e-6f);
+    }
+
+    @Test
+    void sameGeometryForAllEngines() {
+        // @formatter:off
+        IntLSystem ints = TestSystems.plant().build();
+        StringLSystem strings = LSystemBuilders.stringSymbols()
+                .rule("X").out("F[+X][-X]FX").exploding()
+                .rule("F").out("F", "F")
+                .axiom().out("X")
+                .build();
+        // @formatter:on
+
+        FloatBuffer expected = ints.rewrite(6, Interpreters.turtle(1.0, 25.7));
+        assertEquals(expected, strings.rewrite(6, Interpreters.turtle(1.0, 25.7)));
+        for (LSystem.Mode mode : LSystem.Mode.values()) {
+            IntLSystem ls = TestSystems.plant().mode(mode).build();
+            assertEquals(expected, ls.rewrite(6, Interpreters.turtle(1.0, 25.7)), mode.name());
+        }
+    }
+
+    @Test
+    void unbalancedBranch() {
+        IntLSystem ls = LSystemBuilders.intSymbols().axiom().out('F', ']').build();
+        assertThrows(IllegalStateException.class, () -> ls.rewrite(0, Interpreters.turtle(1.0, 90.0)));
+    }
+}